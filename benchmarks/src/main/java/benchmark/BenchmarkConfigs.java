@@ -0,0 +1,35 @@
+package benchmark;
+
+import util.SimulationConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * ベンチマーク用の設定を生成する
+ */
+public final class BenchmarkConfigs {
+    private BenchmarkConfigs() {
+    }
+
+    /**
+     * 規模を変えた設定を生成
+     * サービス数を変える場合は、各サービスにCapabilityを2つずつ割り当てる
+     */
+    public static SimulationConfig create(int actorCount, int marketRange, int serviceCount) {
+        SimulationConfig.Builder builder = SimulationConfig.builder()
+                .actorCount(actorCount)
+                .marketRange(marketRange);
+        if (serviceCount != SimulationConfig.DEFAULT.getServiceCount()) {
+            List<List<Integer>> capabilitiesLists = IntStream.range(0, serviceCount)
+                    .mapToObj(serviceId -> Arrays.asList(serviceId * 2, serviceId * 2 + 1))
+                    .collect(Collectors.toList());
+            builder.serviceCount(serviceCount)
+                    .capabilityCount(serviceCount * 2)
+                    .capabilitiesLists(capabilitiesLists);
+        }
+        return builder.build();
+    }
+}
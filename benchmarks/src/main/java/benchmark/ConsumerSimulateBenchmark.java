@@ -0,0 +1,69 @@
+package benchmark;
+
+import model.Actor;
+import model.SimulationContext;
+import org.openjdk.jmh.annotations.*;
+import util.ActorUtil;
+import util.SimulationConfig;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 価格を変えた場合の購入者数のシミュレーションのベンチマーク
+ * rankingCache=trueは価格均衡ループ内と同じく購入先の順位キャッシュを使う
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumerSimulateBenchmark {
+
+    @Param({"100", "400"})
+    public int actorCount;
+
+    @Param({"30"})
+    public int marketRange;
+
+    @Param({"3"})
+    public int serviceCount;
+
+    @Param({"true", "false"})
+    public boolean rankingCache;
+
+    private SimulationConfig config;
+    private SimulationContext context;
+    private List<Actor> actors;
+    private int hostId;
+
+    @Setup
+    public void setup() {
+        this.config = BenchmarkConfigs.create(this.actorCount, this.marketRange, this.serviceCount);
+        this.context = SimulationContext.create(this.config);
+        this.actors = this.context.getActors();
+        this.context.updateSpatialGrid();
+        this.context.updateMarketActors();
+        if (this.rankingCache) {
+            this.context.updateProviderRanking();
+        }
+    }
+
+    /**
+     * 全サービスについて、1Actorが価格を(minPrice + maxPrice) / 2にした場合の購入者を数える
+     */
+    @Benchmark
+    public int countConsumerSimulate() {
+        Actor hostActor = this.actors.get(this.hostId);
+        this.hostId = (this.hostId + 1) % this.actors.size();
+        int price = (this.config.getMinPrice() + this.config.getMaxPrice()) / 2;
+        int count = 0;
+        for (int serviceId = 0; serviceId < this.serviceCount; serviceId++) {
+            Optional<List<Integer>> consumers = ActorUtil.countConsumerSimulate(hostActor, price, serviceId);
+            count += consumers.map(List::size).orElse(0);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import model.Actor;
+import model.SimulationContext;
+import org.openjdk.jmh.annotations.*;
+import util.DeferredAcceptance;
+import util.MatchingMode;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * サービス交換マッチング(DeferredAcceptance.matching)のベンチマーク
+ * マッチングはActorの状態を書き換えるため、毎回初期状態のActorを生成し直す
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeferredAcceptanceBenchmark {
+
+    @Param({"100", "400"})
+    public int actorCount;
+
+    @Param({"30"})
+    public int marketRange;
+
+    @Param({"3"})
+    public int serviceCount;
+
+    @Param({"ROUNDS", "WORKLIST", "PARALLEL"})
+    public MatchingMode matchingMode;
+
+    private SimulationContext context;
+    private List<Actor> actors;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        this.context = SimulationContext.create(BenchmarkConfigs.create(this.actorCount, this.marketRange, this.serviceCount));
+        this.actors = this.context.getActors();
+        this.context.updateSpatialGrid();
+        this.context.updateMarketActors();
+    }
+
+    @Benchmark
+    public List<Actor> matching() {
+        DeferredAcceptance.matching(this.actors, this.matchingMode);
+        return this.actors;
+    }
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import model.Actor;
+import model.ActorStore;
+import model.SimulationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 市場範囲のActor探索のベンチマーク
+ * useSpatialGrid=falseは空間インデックスを使わない総当たり
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketActorsBenchmark {
+
+    @Param({"100", "400"})
+    public int actorCount;
+
+    @Param({"30"})
+    public int marketRange;
+
+    @Param({"3"})
+    public int serviceCount;
+
+    @Param({"true", "false"})
+    public boolean useSpatialGrid;
+
+    private SimulationContext context;
+    private List<Actor> actors;
+    private ActorStore store;
+
+    @Setup
+    public void setup() {
+        this.context = SimulationContext.create(BenchmarkConfigs.create(this.actorCount, this.marketRange, this.serviceCount));
+        this.actors = this.context.getActors();
+        this.store = this.actors.get(0).getStore();
+    }
+
+    @Benchmark
+    public int updateMarketActors() {
+        if (this.useSpatialGrid) {
+            this.context.updateSpatialGrid();
+        } else {
+            // 空間インデックスを破棄すると総当たりになる
+            this.context.clearSpatialGrid();
+        }
+        this.context.updateMarketActors();
+        return this.store.getMarketActorCount(0);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import model.Actor;
+import model.SimulationContext;
+import org.openjdk.jmh.annotations.*;
+import simulation.PriceSimulation;
+import util.PriceSearchMode;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1Actorの売上最大価格探索(PriceSimulation.mainLoop)のベンチマーク
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceSimulationBenchmark {
+
+    @Param({"100", "400"})
+    public int actorCount;
+
+    @Param({"30"})
+    public int marketRange;
+
+    @Param({"3"})
+    public int serviceCount;
+
+    @Param({"SWEEP", "BREAKPOINT", "WARM_START"})
+    public PriceSearchMode searchMode;
+
+    private SimulationContext context;
+    private List<Actor> actors;
+    private int hostId;
+
+    @Setup
+    public void setup() {
+        this.context = SimulationContext.create(BenchmarkConfigs.create(this.actorCount, this.marketRange, this.serviceCount));
+        this.actors = this.context.getActors();
+        this.context.updateSpatialGrid();
+        this.context.updateMarketActors();
+        this.context.updateProviderRanking();
+    }
+
+    @Benchmark
+    public Object mainLoop() {
+        Actor hostActor = this.actors.get(this.hostId);
+        this.hostId = (this.hostId + 1) % this.actors.size();
+        PriceSimulation priceSimulation = new PriceSimulation(hostActor, this.searchMode);
+        priceSimulation.mainLoop();
+        return priceSimulation.getBestPrices();
+    }
+}
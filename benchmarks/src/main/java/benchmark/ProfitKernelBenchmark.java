@@ -0,0 +1,80 @@
+package benchmark;
+
+import model.Actor;
+import model.ActorStore;
+import model.SimulationContext;
+import org.openjdk.jmh.annotations.*;
+import util.ActorUtil;
+import util.ProfitKernel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 利得計算カーネルのベンチマーク
+ * -prof gc で gc.alloc.rate.norm が 0 B/op になることを確認する
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfitKernelBenchmark {
+
+    @Param({"100", "400"})
+    public int actorCount;
+
+    @Param({"30"})
+    public int marketRange;
+
+    @Param({"3"})
+    public int serviceCount;
+
+    private SimulationContext context;
+    private List<Actor> actors;
+    private ActorStore store;
+    private int providerId;
+    private int consumerId;
+    private int serviceId;
+
+    @Setup
+    public void setup() {
+        this.context = SimulationContext.create(BenchmarkConfigs.create(this.actorCount, this.marketRange, this.serviceCount));
+        this.actors = this.context.getActors();
+        this.context.updateSpatialGrid();
+        this.context.updateMarketActors();
+        this.store = this.actors.get(0).getStore();
+        this.consumerId = 0;
+        this.providerId = this.store.getMarketActorId(this.consumerId, 0);
+        this.serviceId = 0;
+    }
+
+    @Benchmark
+    public double calcProfit() {
+        return ProfitKernel.calcProfit(this.store, this.providerId, this.consumerId, this.serviceId);
+    }
+
+    @Benchmark
+    public double calcProfitWithPrice() {
+        return ProfitKernel.calcProfit(this.store, this.providerId, this.consumerId, this.serviceId, 1000);
+    }
+
+    @Benchmark
+    public double calcProfitActor() {
+        return ActorUtil.calcProfit(this.actors.get(this.providerId), this.actors.get(this.consumerId), this.serviceId);
+    }
+
+    /**
+     * 市場範囲の全Actorから購入した場合の利得の合計(selectProviderの内側のループに相当)
+     */
+    @Benchmark
+    public double calcProfitMarket() {
+        double sum = 0;
+        int marketActorCount = this.store.getMarketActorCount(this.consumerId);
+        for (int i = 0; i < marketActorCount; i++) {
+            sum += ProfitKernel.calcProfit(this.store, this.store.getMarketActorId(this.consumerId, i), this.consumerId, this.serviceId);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,55 @@
+package simulation;
+
+import benchmark.BenchmarkConfigs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ServiceSimulationの1Step(市場更新、価格均衡ループ、マッチング、ログ生成)のベンチマーク
+ * init、step、closeはprotectedのためsimulationパッケージに置く
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceSimulationBenchmark {
+
+    @Param({"100", "400"})
+    public int actorCount;
+
+    @Param({"30"})
+    public int marketRange;
+
+    @Param({"3"})
+    public int serviceCount;
+
+    private ServiceSimulation serviceSimulation;
+
+    /**
+     * 1Step目は全Actorのマッチングが未決定で最も重いため、毎回新しいシミュレーションの1Step目を計測する
+     */
+    @Setup(Level.Invocation)
+    public void setup() {
+        this.serviceSimulation = new ServiceSimulation("benchmark.dat", BenchmarkConfigs.create(this.actorCount, this.marketRange, this.serviceCount));
+        this.serviceSimulation.setVerbose(false);
+        // ログの書き込み先などstepで使う状態はinitで生成する
+        this.serviceSimulation.init();
+    }
+
+    /**
+     * ログの書き込みスレッドと価格計算のスレッドを終了する
+     */
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        this.serviceSimulation.close();
+    }
+
+    @Benchmark
+    public ServiceSimulation step() {
+        this.serviceSimulation.step();
+        return this.serviceSimulation;
+    }
+}
@@ -0,0 +1,84 @@
+package simulation;
+
+import org.junit.jupiter.api.Test;
+import util.SimulationConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ServiceSimulation.openによるCheckpointからの再開
+ */
+class ServiceSimulationResumeTest {
+
+    private static final SimulationConfig CONFIG = SimulationConfig.builder()
+            .actorCount(30)
+            .simulationCount(5)
+            .checkpointInterval(2)
+            .priceParallelism(1)
+            .build();
+
+    /**
+     * 中断したシミュレーションを実行時のみの設定(priceParallelism)を変えて再開しても、中断しなかった場合と同じログになる
+     */
+    @Test
+    void resumeWithDifferentPriceParallelism() throws IOException {
+        run(new ServiceSimulation("resume_full.dat", CONFIG));
+        stopAfter("resume_run.dat", 3);
+
+        ServiceSimulation resumed = ServiceSimulation.open("resume_run.dat", CONFIG.toBuilder().priceParallelism(2).build(), true);
+        run(resumed);
+        // Checkpointは2Step毎なので2Step目の後から再開する
+        assertEquals(3, resumed.getStepTimes().size());
+        assertSameFile("resume_full.dat", "resume_run.dat");
+        assertSameFile("price_resume_full.dat", "price_resume_run.dat");
+    }
+
+    /**
+     * resumeを指定しなければCheckpointがあっても最初から実行する
+     */
+    @Test
+    void startOverWithoutResume() throws IOException {
+        stopAfter("start_over.dat", 3);
+        ServiceSimulation serviceSimulation = ServiceSimulation.open("start_over.dat", CONFIG, false);
+        run(serviceSimulation);
+        assertEquals(CONFIG.getSimulationCount(), serviceSimulation.getStepTimes().size());
+    }
+
+    /**
+     * 結果に影響する設定が異なるCheckpointからは再開しない
+     */
+    @Test
+    void startOverWithDifferentConfig() throws IOException {
+        stopAfter("different.dat", 3);
+        SimulationConfig config = CONFIG.toBuilder().marketRange(CONFIG.getMarketRange() + 1).build();
+        ServiceSimulation serviceSimulation = ServiceSimulation.open("different.dat", config, true);
+        run(serviceSimulation);
+        assertEquals(config.getSimulationCount(), serviceSimulation.getStepTimes().size());
+    }
+
+    /**
+     * lastStepCount Step実行して中断したシミュレーション(Checkpointとログが残る)
+     */
+    private static void stopAfter(String fileName, int lastStepCount) {
+        run(new ServiceSimulation(fileName, CONFIG) {
+            @Override
+            protected boolean isSimulationFinished() {
+                return this.getStepCount() >= lastStepCount;
+            }
+        });
+    }
+
+    private static void run(ServiceSimulation serviceSimulation) {
+        serviceSimulation.setVerbose(false);
+        serviceSimulation.mainLoop();
+    }
+
+    private static void assertSameFile(String expected, String actual) throws IOException {
+        assertArrayEquals(Files.readAllBytes(Paths.get(expected)), Files.readAllBytes(Paths.get(actual)), actual);
+    }
+}
@@ -0,0 +1,99 @@
+package simulation;
+
+import org.junit.jupiter.api.Test;
+import util.ActorLogReader;
+import util.MatchingMode;
+import util.PriceLogReader;
+import util.PriceSearchMode;
+import util.PriceTrace;
+import util.SimulationConfig;
+import util.TestActors;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 高速化した計算方法が元の計算方法と同じシミュレーション結果(全StepのActorと価格均衡ループの全価格)になる
+ */
+class SimulationEquivalenceTest {
+
+    private static final SimulationConfig BASE_CONFIG = SimulationConfig.builder()
+            .actorCount(40)
+            .simulationCount(3)
+            .build();
+
+    /**
+     * SWEEP(全価格をシミュレーション)とBREAKPOINT、WARM_START
+     */
+    @Test
+    void priceSearchModesMatchSweep() throws IOException {
+        Result expected = run("sweep.dat", BASE_CONFIG.toBuilder().priceSearchMode(PriceSearchMode.SWEEP).build());
+        assertSameResult(expected, run("breakpoint.dat", BASE_CONFIG.toBuilder().priceSearchMode(PriceSearchMode.BREAKPOINT).build()));
+        assertSameResult(expected, run("warm_start.dat", BASE_CONFIG.toBuilder().priceSearchMode(PriceSearchMode.WARM_START).build()));
+    }
+
+    /**
+     * ROUNDS(全Actorのラウンド)とWORKLIST、PARALLEL
+     */
+    @Test
+    void matchingModesMatchRounds() throws IOException {
+        Result expected = run("rounds.dat", BASE_CONFIG.toBuilder().matchingMode(MatchingMode.ROUNDS).build());
+        assertSameResult(expected, run("worklist.dat", BASE_CONFIG.toBuilder().matchingMode(MatchingMode.WORKLIST).build()));
+        assertSameResult(expected, run("parallel.dat", BASE_CONFIG.toBuilder().matchingMode(MatchingMode.PARALLEL).build()));
+    }
+
+    /**
+     * 市場範囲の総当たりと空間インデックス
+     */
+    @Test
+    void spatialGridMatchesBruteForce() throws IOException {
+        Result expected = run("brute_force.dat", BASE_CONFIG.toBuilder().useSpatialGrid(false).build());
+        assertSameResult(expected, run("spatial_grid.dat", BASE_CONFIG.toBuilder().useSpatialGrid(true).build()));
+    }
+
+    private static void assertSameResult(Result expected, Result actual) {
+        assertEquals(expected.actors, actual.actors);
+        assertEquals(expected.prices, actual.prices);
+    }
+
+    /**
+     * シミュレーションを実行し、保存したログを読み込む
+     */
+    private static Result run(String fileName, SimulationConfig config) throws IOException {
+        ServiceSimulation serviceSimulation = new ServiceSimulation(fileName, config);
+        serviceSimulation.setVerbose(false);
+        serviceSimulation.mainLoop();
+
+        List<List<String>> actors;
+        try (ActorLogReader reader = new ActorLogReader(fileName)) {
+            actors = TestActors.describeAll(reader.readAll());
+        }
+        PriceTrace trace = PriceLogReader.readAll("price_" + fileName);
+        List<String> prices = new ArrayList<>(trace.getIterationCount());
+        int[] current = new int[trace.getActorCount() * trace.getServiceCount()];
+        for (int iteration = 0; iteration < trace.getIterationCount(); iteration++) {
+            trace.applyIteration(iteration, current);
+            prices.add(Arrays.toString(current));
+        }
+        return new Result(actors, prices);
+    }
+
+    /**
+     * 比較するシミュレーション結果
+     */
+    private static final class Result {
+        // [Step][actorId] Actorの状態
+        private final List<List<String>> actors;
+        // [価格均衡ループの回] 全価格
+        private final List<String> prices;
+
+        private Result(List<List<String>> actors, List<String> prices) {
+            this.actors = actors;
+            this.prices = prices;
+        }
+    }
+}
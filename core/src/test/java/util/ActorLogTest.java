@@ -0,0 +1,186 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+import model.SimulationContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ActorLogWriter、ActorLogReader、ActorLogConverterの読み書き
+ */
+class ActorLogTest {
+
+    private static final int STEP_COUNT = 7;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * 全状態のStepと差分のStepが混ざったログを、順不同に読んでも書き込んだ状態に戻る
+     */
+    @Test
+    void roundTripKeyframesAndDeltas() throws IOException {
+        String fileName = this.tempDir.resolve("log.sslg").toString();
+        List<List<String>> expected = writeSteps(fileName, 3, STEP_COUNT, 1);
+
+        try (ActorLogReader reader = new ActorLogReader(fileName)) {
+            assertEquals(STEP_COUNT, reader.getStepCount());
+            assertEquals(3, reader.getConfig().getLogKeyframeInterval());
+            assertEquals(expected, TestActors.describeAll(reader.readAll()));
+
+            // 後ろのStepから読むと差分を直前の全状態のStepから適用し直す
+            List<Integer> order = new ArrayList<>();
+            for (int stepIndex = 0; stepIndex < STEP_COUNT; stepIndex++) order.add(stepIndex);
+            Collections.reverse(order);
+            for (int stepIndex : order) {
+                assertEquals(expected.get(stepIndex), TestActors.describe(reader.readStep(stepIndex)), "step " + stepIndex);
+            }
+        }
+    }
+
+    /**
+     * 索引が書き込まれる前に途切れたファイルは、最後まで書き込まれたStepだけを読む
+     */
+    @Test
+    void readTruncatedLogWithoutIndex() throws IOException {
+        String fileName = this.tempDir.resolve("log.sslg").toString();
+        List<List<String>> expected = writeSteps(fileName, 3, STEP_COUNT, 2);
+        // 索引(Step毎の位置、Step数、終端のマジック)と最後のStepの末尾を削る
+        long indexLength = (long) STEP_COUNT * Long.BYTES + Integer.BYTES + ActorLogFormat.INDEX_MAGIC.length;
+        truncate(fileName, Files.size(Paths.get(fileName)) - indexLength - 5);
+
+        try (ActorLogReader reader = new ActorLogReader(fileName)) {
+            assertEquals(STEP_COUNT - 1, reader.getStepCount());
+            assertEquals(expected.subList(0, STEP_COUNT - 1), TestActors.describeAll(reader.readAll()));
+        }
+    }
+
+    /**
+     * openAppendは指定したStepより後ろを捨てて続きを書き込む
+     */
+    @Test
+    void appendAfterKeptSteps() throws IOException {
+        String fileName = this.tempDir.resolve("log.sslg").toString();
+        List<List<String>> first = writeSteps(fileName, 3, 5, 3);
+
+        SimulationContext context = createContext(3);
+        SplittableRandom random = new SplittableRandom(4);
+        List<List<String>> appended = new ArrayList<>();
+        try (ActorLogWriter writer = ActorLogWriter.openAppend(fileName, 4)) {
+            assertEquals(4, writer.getStepCount());
+            for (int i = 0; i < 3; i++) {
+                mutate(context, random);
+                writer.writeStep(context.getActors());
+                appended.add(TestActors.describe(context.getActors()));
+            }
+        }
+
+        List<List<String>> expected = new ArrayList<>(first.subList(0, 4));
+        expected.addAll(appended);
+        try (ActorLogReader reader = new ActorLogReader(fileName)) {
+            assertEquals(expected, TestActors.describeAll(reader.readAll()));
+        }
+    }
+
+    /**
+     * ストア導入前のコードで保存したログを変換すると、当時のクラスで読んだ状態(baseline_actor_log.txt)と一致する
+     */
+    @Test
+    void convertBaselineSerializedLog() throws IOException, ClassNotFoundException, URISyntaxException {
+        String serializedFileName = resource("/legacy/baseline_actor_log.dat");
+        List<String> expected = Files.readAllLines(Paths.get(resource("/legacy/baseline_actor_log.txt")), StandardCharsets.UTF_8);
+
+        String fileName = this.tempDir.resolve("converted.sslg").toString();
+        assertEquals(3, ActorLogConverter.convert(serializedFileName, fileName));
+        try (ActorLogReader reader = new ActorLogReader(fileName)) {
+            assertEquals(20, reader.getConfig().getActorCount());
+            assertEquals(expected, flatten(TestActors.describeAll(reader.readAll())));
+        }
+        // Viewerの読み込みも同じ変換を通る
+        assertEquals(expected, flatten(TestActors.describeAll(FileIO.loadAgentLog(serializedFileName).orElseThrow())));
+    }
+
+    /**
+     * 乱数で状態を変えながらstepCount Step分書き込み、各Stepの状態を返す
+     */
+    private static List<List<String>> writeSteps(String fileName, int keyframeInterval, int stepCount, long seed) throws IOException {
+        SimulationContext context = createContext(keyframeInterval);
+        SplittableRandom random = new SplittableRandom(seed);
+        List<List<String>> steps = new ArrayList<>(stepCount);
+        try (ActorLogWriter writer = new ActorLogWriter(fileName, context.getStore())) {
+            for (int stepIndex = 0; stepIndex < stepCount; stepIndex++) {
+                if (stepIndex > 0) mutate(context, random);
+                writer.writeStep(context.getActors());
+                steps.add(TestActors.describe(context.getActors()));
+            }
+        }
+        return steps;
+    }
+
+    private static SimulationContext createContext(int keyframeInterval) {
+        SimulationConfig config = SimulationConfig.builder()
+                .actorCount(30)
+                .logKeyframeInterval(keyframeInterval)
+                .build();
+        SimulationContext context = SimulationContext.create(config);
+        context.updateSpatialGrid();
+        context.updateMarketActors();
+        return context;
+    }
+
+    /**
+     * 一部のActorの価格、購入先、売却先、マッチ、価格変化フラグ、Capabilityと、1つのActorの座標(市場)を変える
+     */
+    private static void mutate(SimulationContext context, SplittableRandom random) {
+        SimulationConfig config = context.getConfig();
+        ActorStore store = context.getStore();
+        for (Actor actor : context.getActors()) {
+            if (random.nextInt(3) != 0) continue;
+            int serviceId = random.nextInt(config.getServiceCount());
+            store.setPrice(actor.getId(), serviceId, config.getMinPrice() + random.nextInt(20) * config.getDeltaPrice());
+            actor.setProviderActorId(serviceId, random.nextInt(config.getActorCount()));
+            actor.setIsMach(serviceId, random.nextBoolean());
+            actor.setConsumerActorIdList(serviceId, new ArrayList<>(List.of(random.nextInt(config.getActorCount()))));
+            int[] prices = actor.getPrices().stream().mapToInt(Integer::intValue).toArray();
+            prices[serviceId] += random.nextBoolean() ? config.getBalancePriceThreshold() + 1 : 0;
+            actor.checkChangePrices(prices);
+            if (random.nextInt(4) == 0) actor.growthCapability();
+        }
+        int actorId = random.nextInt(config.getActorCount());
+        store.setPos(actorId, 0, (store.getPos(actorId, 0) + 7) % config.getFieldSize());
+        context.updateSpatialGrid();
+        context.updateMarketActors();
+    }
+
+    private static void truncate(String fileName, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static String resource(String name) throws URISyntaxException {
+        return Paths.get(ActorLogTest.class.getResource(name).toURI()).toString();
+    }
+
+    private static List<String> flatten(List<List<String>> steps) {
+        List<String> lines = new ArrayList<>();
+        steps.forEach(lines::addAll);
+        return lines;
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import model.SimulationContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * StreamingLogSinkの書き込みスレッドの失敗
+ */
+class StreamingLogSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * 書き込みスレッドで実行時例外が起きても、以降の追記とcloseは待ち続けずにIOExceptionで失敗する
+     */
+    @Test
+    void runtimeFailureInWriterDoesNotBlock() throws IOException {
+        SimulationContext context = SimulationContext.create(SimulationConfig.builder().actorCount(10).build());
+        SimulationContext otherContext = SimulationContext.create(SimulationConfig.builder().actorCount(20).build());
+        StreamingLogSink sink = new StreamingLogSink(this.tempDir.resolve("log.sslg").toString(),
+                this.tempDir.resolve("price.sslg").toString(), context.getStore());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            // Actorの数が違う価格はPriceLogWriterがIllegalArgumentExceptionにする
+            sink.appendPrices(otherContext.getStore());
+            // キューの容量より多く追記しても、失敗が伝わるまでに待ち続けない
+            IOException appendFailure = assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 100; i++) {
+                    sink.appendPrices(context.getStore());
+                    Thread.sleep(10);
+                }
+            });
+            assertTrue(appendFailure.getCause() instanceof IllegalArgumentException);
+            assertThrows(IOException.class, sink::close);
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package util;
+
+import model.Actor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * テストで比較するためにActorの状態を文字列にする
+ */
+public final class TestActors {
+
+    private TestActors() {
+    }
+
+    /**
+     * 1Step分の全Actorの状態(ログに保存される全項目)を1Actor1行で表す
+     */
+    public static List<String> describe(List<Actor> actors) {
+        return actors.stream().map(TestActors::describe).collect(Collectors.toList());
+    }
+
+    /**
+     * id 座標 Capability Feature(全サービス) 価格 市場 購入先 売却先 マッチ済みか 価格変化フラグ
+     */
+    public static String describe(Actor actor) {
+        int serviceCount = actor.getConfig().getServiceCount();
+        List<Double> features = new ArrayList<>();
+        List<Integer> providerIds = new ArrayList<>();
+        boolean[] matches = new boolean[serviceCount];
+        for (int serviceId = 0; serviceId < serviceCount; serviceId++) {
+            features.addAll(actor.getFeature(serviceId));
+            providerIds.add(actor.getProviderId(serviceId));
+            matches[serviceId] = actor.isMatch(serviceId);
+        }
+        return actor.getId() + " " + Arrays.toString(actor.getPos()) + " " + actor.getCapabilities() + " " + features
+                + " " + actor.getPrices() + " " + actor.getMarketActorIdList() + " " + providerIds
+                + " " + actor.getConsumerActorIdsList() + " " + Arrays.toString(matches) + " " + actor.isChangePrice();
+    }
+
+    /**
+     * 全Stepの状態
+     */
+    public static List<List<String>> describeAll(List<List<Actor>> logList) {
+        return logList.stream().map(TestActors::describe).collect(Collectors.toList());
+    }
+}
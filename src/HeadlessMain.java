@@ -0,0 +1,233 @@
+import simulation.BatchExecutor;
+import simulation.ServiceSimulation;
+import util.SimulationConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JavaFXを起動せずにシミュレーションを実行するエントリポイント
+ * 計算ノードでのバッチ実行用
+ * <p>
+ * 例: java -cp service-simulation.jar HeadlessMain --out=result.dat --config=sim.properties --actorCount=1000 --seed=1
+ * 例: java -cp service-simulation.jar HeadlessMain --out=result.dat --runs=64 --threads=16
+ * 例: java -cp service-simulation.jar HeadlessMain --out=result.dat --checkpointInterval=10 --resume
+ */
+public class HeadlessMain {
+
+    private static final String USAGE = String.join("\n",
+            "usage: HeadlessMain [options]",
+            "  --out=<file>              保存するファイル名 (default: result.dat)",
+            "  --config=<file>           設定を読み込むpropertiesファイル",
+            "  --<key>=<value>           設定の上書き、keyはSimulationConfigのフィールド名",
+            "                            (actorCount, serviceCount, simulationCount, marketRange, deltaPrice, ...)",
+            "  --steps=<n>               --simulationCountと同じ",
+            "  --seed=<n>                座標、Capability、Featureの乱数のシードをn, n+1, n+2にする",
+            "  --pos-seed=<n>            --posSeedと同じ",
+            "  --capability-seed=<n>     --capabilitySeedと同じ",
+            "  --feature-seed=<n>        --featureSeedと同じ",
+            "  --runs=<n>                シードを変えてn回実行 (default: 1)、i回目のシードは各シード + 3i",
+            "                            ファイル名は<out>に_iを付けたもの",
+            "  --threads=<n>             同時に実行するシミュレーション数 (default: CPU数)",
+            "                            priceParallelismが0なら各シミュレーションの価格探索はCPU数 / nスレッド",
+            "  --resume                  checkpoint_<out>(--runs>1では各ファイルのもの)が同じ設定なら、その時点から再開する",
+            "                            priceParallelismは比較しない",
+            "  --help                    この表示");
+
+    // 互換のための別名
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        ALIASES.put("steps", "simulationCount");
+        ALIASES.put("pos-seed", "posSeed");
+        ALIASES.put("capability-seed", "capabilitySeed");
+        ALIASES.put("feature-seed", "featureSeed");
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        if (options.containsKey("help")) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        String fileName = options.getOrDefault("out", "result.dat");
+        SimulationConfig config;
+        int runs;
+        int threads;
+        try {
+            runs = Integer.parseInt(options.getOrDefault("runs", "1"));
+            threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            config = buildConfig(options);
+        } catch (IOException e) {
+            System.err.println("cannot read config: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("invalid config: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        System.out.println(config);
+
+        boolean resume = options.containsKey("resume");
+        if (runs > 1) {
+            runBatch(config, fileName, runs, threads, resume);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        ServiceSimulation serviceSimulation;
+        try {
+            serviceSimulation = ServiceSimulation.open(fileName, config, resume);
+        } catch (IOException e) {
+            System.err.println("cannot read checkpoint: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        serviceSimulation.mainLoop();
+        long totalTime = System.nanoTime() - startTime;
+
+        printStepTimes(serviceSimulation.getStepTimes(), totalTime);
+    }
+
+    /**
+     * 設定ファイル(指定があれば)にコマンドライン引数の設定を上書きして設定を生成
+     */
+    private static SimulationConfig buildConfig(Map<String, String> options) throws IOException {
+        SimulationConfig baseConfig = options.containsKey("config")
+                ? SimulationConfig.load(options.get("config"))
+                : SimulationConfig.DEFAULT;
+
+        Properties overrides = new Properties();
+        options.forEach((key, value) -> {
+            if (key.equals("out") || key.equals("config") || key.equals("runs") || key.equals("threads")
+                    || key.equals("resume")) return;
+            overrides.setProperty(ALIASES.getOrDefault(key, key), value);
+        });
+        return baseConfig.toBuilder().apply(overrides).build();
+    }
+
+    /**
+     * シードを変えた設定でruns回のシミュレーションを並列に実行し、実行時間を集計して表示
+     */
+    private static void runBatch(SimulationConfig config, String fileName, int runs, int threads, boolean resume) {
+        List<SimulationConfig> configs = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            configs.add(config.toBuilder()
+                    .posSeed(config.getPosSeed() + 3L * i)
+                    .capabilitySeed(config.getCapabilitySeed() + 3L * i)
+                    .featureSeed(config.getFeatureSeed() + 3L * i)
+                    .build());
+        }
+
+        long startTime = System.nanoTime();
+        List<BatchExecutor.Result> results;
+        try {
+            results = new BatchExecutor(threads, resume).run(configs, i -> toIndexedFileName(fileName, i));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("interrupted");
+            System.exit(1);
+            return;
+        }
+        long totalTime = System.nanoTime() - startTime;
+
+        System.out.println("run\tfile\tsteps\tmean step(ms)\ttotal(ms)\tprice worker utilization");
+        results.forEach(result -> {
+            double meanStepTime = result.getStepTimes().stream().mapToLong(Long::longValue).average().orElse(0);
+            System.out.println(result.getIndex() + "\t" + result.getFileName() + "\t" + result.getStepTimes().size()
+                    + "\t" + toMillis((long) meanStepTime) + "\t" + toMillis(result.getTotalTime())
+                    + "\t" + formatUtilizations(result.getPriceWorkerUtilizations()));
+        });
+        LongSummaryStatistics statistics = results.stream().mapToLong(BatchExecutor.Result::getTotalTime).summaryStatistics();
+        System.out.println("runs: " + statistics.getCount() + " threads: " + threads
+                + " mean: " + toMillis((long) statistics.getAverage()) + " ms"
+                + " min: " + toMillis(statistics.getMin()) + " ms"
+                + " max: " + toMillis(statistics.getMax()) + " ms");
+        System.out.println("total: " + toMillis(totalTime) + " ms");
+    }
+
+    /**
+     * result.dat -> result_3.dat
+     */
+    private static String toIndexedFileName(String fileName, int index) {
+        int dot = fileName.lastIndexOf('.');
+        return (dot > fileName.lastIndexOf('/') + 1)
+                ? fileName.substring(0, dot) + "_" + index + fileName.substring(dot)
+                : fileName + "_" + index;
+    }
+
+    /**
+     * --key=value または --key value 形式の引数を解析
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("unknown argument: " + arg);
+            }
+            String key = arg.substring(2);
+            int separator = key.indexOf('=');
+            if (separator >= 0) {
+                options.put(key.substring(0, separator), key.substring(separator + 1));
+            } else if (key.equals("help") || key.equals("resume")) {
+                options.put(key, "");
+            } else if (i + 1 < args.length) {
+                options.put(key, args[++i]);
+            } else {
+                throw new IllegalArgumentException("missing value: " + arg);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Step毎の実行時間と集計を表示
+     */
+    private static void printStepTimes(List<Long> stepTimes, long totalTime) {
+        System.out.println("step\ttime(ms)");
+        for (int i = 0; i < stepTimes.size(); i++) {
+            System.out.println(i + "\t" + toMillis(stepTimes.get(i)));
+        }
+        LongSummaryStatistics statistics = stepTimes.stream().mapToLong(Long::longValue).summaryStatistics();
+        if (statistics.getCount() > 0) {
+            System.out.println("steps: " + statistics.getCount()
+                    + " mean: " + toMillis((long) statistics.getAverage()) + " ms"
+                    + " min: " + toMillis(statistics.getMin()) + " ms"
+                    + " max: " + toMillis(statistics.getMax()) + " ms");
+        }
+        System.out.println("total: " + toMillis(totalTime) + " ms");
+    }
+
+    /**
+     * 各ワーカーの稼働率を空白区切りで表示
+     */
+    private static String formatUtilizations(double[] utilizations) {
+        return Arrays.stream(utilizations)
+                .mapToObj(utilization -> String.format("%.2f", utilization))
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
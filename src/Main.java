@@ -5,16 +5,18 @@ import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.TextInputDialog;
 import javafx.stage.Stage;
 import model.Actor;
+import model.SimulationContext;
 import simulation.ServiceSimulation;
-import util.ActorUtil;
+import util.ActorLogCache;
 import util.FileIO;
+import util.PriceTrace;
+import util.SimulationConfig;
 import view.CanvasDrawer;
 import view.JavaFXBuilder;
 import view.ScrollBarChangeListener;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 import static util.Const.*;
 
@@ -56,26 +58,35 @@ public class Main extends Application {
     }
 
     private void startFileLoad(String fileNameStr, Stage primaryStage) {
-        // 表示
-        Group root = JavaFXBuilder.buildRootGroup();
+        // Load file(表示するStepだけを読み込む)
+        Optional<List<List<Actor>>> logOptional = FileIO.openAgentLog(fileNameStr).filter(logList -> !logList.isEmpty());
+
+        // 表示(タブの数、フィールドの大きさ、スクロールの範囲は読み込んだログに合わせる)
+        SimulationConfig config = logOptional.map(Main::getConfig).orElse(SimulationConfig.DEFAULT);
+        Group root = JavaFXBuilder.buildRootGroup(config, logOptional.map(List::size).orElse(0));
         primaryStage.setTitle(fileNameStr);
         primaryStage.setMaxWidth(SCREEN_WIDTH);
         primaryStage.setMaxHeight(SCREEN_HEIGHT);
         primaryStage.setScene(new Scene(root, SCREEN_WIDTH, SCREEN_HEIGHT));
         primaryStage.show();
 
-        // Load file
-        Optional<List<List<Actor>>> logOptional = FileIO.loadAgentLog(fileNameStr);
         logOptional.ifPresent(logList -> {
             ScrollBarChangeListener.setActorLogList(logList);
 
             List<Actor> log = logList.get(0);
-            ActorUtil.setActors(log);
-            IntStream.range(0, SERVICE_COUNT + 1).forEach(i -> CanvasDrawer.drawActorsAndNetwork(log, i));
+            SimulationContext.of(log);
+            CanvasDrawer.drawAllServices(log);
             log.forEach(actor -> System.out.println(actor.toString()));
         });
 
-        Optional<List<List<List<Integer>>>> priceLogOptional = FileIO.loadPriceLog("price_" + fileNameStr);
+        Optional<PriceTrace> priceLogOptional = FileIO.loadPriceLog("price_" + fileNameStr);
         priceLogOptional.ifPresent(CanvasDrawer::drawPriceLineChart);
     }
+
+    /**
+     * ログの設定(バイナリ形式はファイルに保存された設定、以前の形式は変換したActorの設定)
+     */
+    private static SimulationConfig getConfig(List<List<Actor>> logList) {
+        return (logList instanceof ActorLogCache) ? ((ActorLogCache) logList).getConfig() : logList.get(0).get(0).getConfig();
+    }
 }
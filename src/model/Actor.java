@@ -8,169 +8,126 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static util.Const.*;
+import static util.Const.DIM;
 
 /**
  * Created by yutakase on 2016/11/29.
  */
 public class Actor implements Serializable {
-    // ID
+    // 状態を保持するストア
+    private ActorStore store;
+    // ID(ストア上の位置)
     private int id;
-    // position
-    private int[] pos;
-    // Capability(能力)ベクトル
-    private List<Double> capabilities;
-    // 各サービスの能力に対する評価ベクトルのリスト
-    private List<List<Double>> features;
-    // 各サービスの価格
-    private List<Integer> prices;
-    // サービス交換可能なActorのID
-    private List<Integer> marketActorIdList;
-    // 各サービスの購入先ActorのID
-    private List<Integer> providerActorIdList;
     // 各サービスの売却先ActorのID
     private List<List<Integer>> consumerActorIdsList;
-    // 各サービスにおける購入先の選考希望リスト
-    private List<List<PurchaseInfo>> selectProviderList;
-    // サービス交換相手が確定したか
-    private List<Boolean> isMatches;
+    // 各サービスにおける購入先の選考希望リスト(マッチング中だけの状態、保存もコピーもしない)
+    private transient List<PreferenceList> selectProviderList;
     // 均衡価格判定フラグ
     private boolean isChangePrice = true;
-    // 売却先ソート用Comparator
-    private List<ConsumerComparator> comparators;
+    // 売却先ソート用Comparator(保存もコピーもせず、必要になった時に生成する)
+    private transient List<ConsumerComparator> comparators;
 
     // Copy用
     private Actor() {
-        this.pos = new int[DIM];
-        this.capabilities = new ArrayList<>(CAPABILITY_COUNT);
-        this.features = new ArrayList<>(SERVICE_COUNT);
-        this.prices = new ArrayList<>(SERVICE_COUNT);
-        this.marketActorIdList = new ArrayList<>();
-        this.providerActorIdList = new ArrayList<>(SERVICE_COUNT);
-        this.consumerActorIdsList = new ArrayList<>(SERVICE_COUNT);
-        this.selectProviderList = new LinkedList<>();
-        this.isMatches = new ArrayList<>(SERVICE_COUNT);
-    }
-
-    public Actor(int id) {
+        this.consumerActorIdsList = new ArrayList<>();
+        this.selectProviderList = new ArrayList<>();
+    }
+
+    /**
+     * @param posRandom        座標生成に用いる乱数
+     * @param capabilityRandom Capability生成に用いる乱数
+     * @param featureRandom    Feature生成に用いる乱数
+     */
+    public Actor(ActorStore store, int id, SplittableRandom posRandom, SplittableRandom capabilityRandom, SplittableRandom featureRandom) {
+        this.store = store;
         this.id = id;
+        SimulationConfig config = store.getConfig();
 
         // 座標を乱数で定義
-        this.pos = IntStream
-                .generate(() -> (int) CalcUtil.generateRandomDouble(POS_RAND_GENERATOR, 0, FIELD_SIZE))
-                .limit(DIM)
-                .toArray();
+        IntStream.range(0, DIM)
+                .forEach(dim -> store.setPos(id, dim, (int) CalcUtil.generateRandomDouble(posRandom, 0, config.getFieldSize())));
 
         // Capabilityを乱数で定義
-        this.capabilities = Stream
-//                .generate(() -> CalcUtil.generateRandomDouble(CAPABILITY_RAND_GENERATOR, MIN_CAPABILITY, MAX_CAPABILITY))// 一様乱数
-                .generate(() -> CalcUtil.generateRandomGaussian(CAPABILITY_RAND_GENERATOR, MU_CAPABILITY, SD_CAPABILITY))// 正規乱数
-                .limit(CAPABILITY_COUNT)
-                .collect(Collectors.toList());
-
-        // 各サービスのCapabilityに対する評価ベクトルのリストを定義
-        this.features = IntStream
-                .range(0, SERVICE_COUNT)
-                .mapToObj(i -> {
-                    // 評価ベクトルを乱数で定義
-                    return Stream
-//                    .generate(() -> CalcUtil.generateRandomDouble(FEATURE_RAND_GENERATOR, MIN_FEATURE, MAX_FEATURE))// 一様乱数
-                            .generate(() -> CalcUtil.generateRandomGaussian(FEATURE_RAND_GENERATOR, MU_FEATURE, SD_FEATURE))// 正規乱数
-                            .limit(CAPABILITIES_LISTS.get(i).size())
-                            .collect(Collectors.toList());
-                })
-                .collect(Collectors.toList());
-
-        // 各サービスの価格を最低価格で初期化
-        this.prices = Stream
-                .generate(() -> MIN_PRICE)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
-
-        this.marketActorIdList = new ArrayList<>();
-
-        // 各サービスの購入先を初期化
-        this.providerActorIdList = Stream
-                .generate(() -> -1)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
-
-        // 売却先ActorIDのリストを初期化
-        this.consumerActorIdsList = Stream
-                .generate(ArrayList<Integer>::new)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
+        IntStream.range(0, config.getCapabilityCount())
+//                .forEach(i -> store.setCapability(id, i, CalcUtil.generateRandomDouble(capabilityRandom, MIN_CAPABILITY, MAX_CAPABILITY)));// 一様乱数
+                .forEach(i -> store.setCapability(id, i, CalcUtil.generateRandomGaussian(capabilityRandom, config.getMuCapability(), config.getSdCapability())));// 正規乱数
 
-        this.isMatches = IntStream
-                .range(0, SERVICE_COUNT)
-                .mapToObj(i -> false)
-                .collect(Collectors.toList());
+        // 各サービスのCapabilityに対する評価ベクトルを乱数で定義
+        IntStream.range(0, config.getServiceCount())
+                .forEach(serviceId -> IntStream.range(0, config.getCapabilitiesLists().get(serviceId).size())
+//                        .forEach(dim -> store.setFeature(id, serviceId, dim, CalcUtil.generateRandomDouble(featureRandom, MIN_FEATURE, MAX_FEATURE))));// 一様乱数
+                        .forEach(dim -> store.setFeature(id, serviceId, dim, CalcUtil.generateRandomGaussian(featureRandom, config.getMuFeature(), config.getSdFeature()))));// 正規乱数
 
+        this.initServices();
     }
 
     /**
      * Test用
      */
-    public Actor(int id, String test) {
+    public Actor(ActorStore store, int id, String test) {
+        this.store = store;
         this.id = id;
+        SimulationConfig config = store.getConfig();
+        int fieldSize = config.getFieldSize();
 
         // 格子状に配置
-        this.pos = new int[]{(id % 10) * (FIELD_SIZE / 10) + FIELD_SIZE / 20, (id / 10) * (FIELD_SIZE / 10) + FIELD_SIZE / 20};
+        store.setPos(id, 0, (id % 10) * (fieldSize / 10) + fieldSize / 20);
+        store.setPos(id, 1, (id / 10) * (fieldSize / 10) + fieldSize / 20);
 
-        // Capabilityを乱数で定義
-        this.capabilities = Stream
-                .generate(() -> (double) id * 20)
-                .limit(CAPABILITY_COUNT)
-                .collect(Collectors.toList());
+        // Capabilityを定義
+        IntStream.range(0, config.getCapabilityCount())
+                .forEach(i -> store.setCapability(id, i, (double) id * 20));
 
-        // 各サービスのCapabilityに対する評価ベクトルのリストを定義
-        this.features = IntStream
-                .range(0, SERVICE_COUNT)
-                .mapToObj(i -> {
-                    // 評価ベクトルを乱数で定義
-                    return Stream
-                            .generate(() -> 1.0)
-                            .limit(CAPABILITIES_LISTS.get(i).size())
-                            .collect(Collectors.toList());
-                })
-                .collect(Collectors.toList());
+        // 各サービスのCapabilityに対する評価ベクトルを定義
+        IntStream.range(0, config.getServiceCount())
+                .forEach(serviceId -> IntStream.range(0, config.getCapabilitiesLists().get(serviceId).size())
+                        .forEach(dim -> store.setFeature(id, serviceId, dim, 1.0)));
 
-        // 各サービスの価格を最低価格で初期化
-        this.prices = Stream
-                .generate(() -> MIN_PRICE)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
+        this.initServices();
+    }
 
-        this.marketActorIdList = new ArrayList<>();
+    /**
+     * ログから復元
+     * 座標、Capabilityなどはstoreに復元済みであること
+     *
+     * @param consumerActorIdsList 各サービスの売却先ActorのID、読み取り専用のビューでもよい
+     */
+    public static Actor restore(ActorStore store, int id, List<List<Integer>> consumerActorIdsList, boolean isChangePrice) {
+        Actor actor = new Actor();
+        actor.store = store;
+        actor.id = id;
+        actor.consumerActorIdsList.addAll(consumerActorIdsList);
+        actor.isChangePrice = isChangePrice;
+        return actor;
+    }
 
-        // 各サービスの購入先を初期化
-        this.providerActorIdList = Stream
-                .generate(() -> -1)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
+    /**
+     * 価格、購入先、売却先を初期化
+     */
+    private void initServices() {
+        IntStream.range(0, this.getConfig().getServiceCount()).forEach(serviceId -> {
+            // 各サービスの価格を最低価格で初期化
+            this.store.setPrice(this.id, serviceId, this.getConfig().getMinPrice());
+            // 各サービスの購入先を初期化
+            this.store.setProviderId(this.id, serviceId, -1);
+            this.store.setMatch(this.id, serviceId, false);
+        });
 
         // 売却先ActorIDのリストを初期化
         this.consumerActorIdsList = Stream
                 .generate(ArrayList<Integer>::new)
-                .limit(SERVICE_COUNT)
+                .limit(this.getConfig().getServiceCount())
                 .collect(Collectors.toList());
     }
 
-    /**
-     * サービス交換するActorのリストを更新
-     */
-    public void updateMarketActors() {
-        ActorUtil.updateMarketActors(this, this.pos, this.marketActorIdList);
-    }
-
     /**
      * すべてのサービスに関して購入先を選択し、providerListを更新
      */
     public void updateProviders() {
-        IntStream.range(0, SERVICE_COUNT)
+        IntStream.range(0, this.getConfig().getServiceCount())
                 .forEach(serviceId -> {
                     Optional<Integer> selectedIdOptional = this.selectProviderId(serviceId);
-                    selectedIdOptional.ifPresent(selectedId -> this.providerActorIdList.set(serviceId, selectedId));
+                    selectedIdOptional.ifPresent(selectedId -> this.setProviderActorId(serviceId, selectedId));
                 });
     }
 
@@ -178,7 +135,8 @@ public class Actor implements Serializable {
      * serviceIdのサービスの購入先Actorを選択
      */
     public Optional<Integer> selectProviderId(int serviceId) {
-        return selectProviderId(serviceId, this.marketActorIdList);
+        return ActorUtil.selectProvider(this, -1, serviceId)
+                .map(PurchaseInfo::getProviderId);
     }
 
     /**
@@ -194,11 +152,11 @@ public class Actor implements Serializable {
      */
     public void updateSelectProviderList() {
         this.selectProviderList = IntStream
-                .range(0, SERVICE_COUNT)
+                .range(0, this.getConfig().getServiceCount())
                 .mapToObj(serviceId -> {
-                    // 購入時利得を計算し、降順にソート
-                    Optional<List<PurchaseInfo>> listOptional = ActorUtil.calcProviderSelectList(this, this.marketActorIdList, serviceId);
-                    return (listOptional.isPresent()) ? listOptional.get() : new LinkedList<PurchaseInfo>();
+                    // 購入時利得を計算、ソートはポップする時に必要な分だけ行う
+                    Optional<PreferenceList> listOptional = ActorUtil.calcProviderPreferenceList(this, serviceId);
+                    return listOptional.orElseGet(PreferenceList::empty);
                 })
                 .collect(Collectors.toList());
     }
@@ -208,15 +166,14 @@ public class Actor implements Serializable {
      * データがリストが空のときは-1を返す
      */
     public int popSelectedProviderId(int serviceId) {
-        if (selectProviderList.get(serviceId).isEmpty()) return -1;
-        return this.selectProviderList.get(serviceId).remove(0).getProviderId();
+        return this.selectProviderList.get(serviceId).popProviderId();
     }
 
     /**
      * すべてのサービスに関して売却先を選択し、consumerListを更新
      */
     public void updateConsumers() {
-        IntStream.range(0, SERVICE_COUNT)
+        IntStream.range(0, this.getConfig().getServiceCount())
                 .forEach(serviceId -> {
                     Optional<List<Integer>> consumersIdListOptional = ActorUtil.countConsumer(this, serviceId);
                     consumersIdListOptional.ifPresent(consumersIdList -> this.consumerActorIdsList.set(serviceId, consumersIdList));
@@ -237,12 +194,12 @@ public class Actor implements Serializable {
         // 初回時、ソート用comparatorを初期化
         if (!Optional.ofNullable(comparators).isPresent()) {
             comparators = IntStream
-                    .range(0, SERVICE_COUNT)
+                    .range(0, this.getConfig().getServiceCount())
                     .mapToObj(i -> new ConsumerComparator(this, i))
                     .collect(Collectors.toList());
         }
 
-        IntStream.range(0, SERVICE_COUNT)
+        IntStream.range(0, this.getConfig().getServiceCount())
                 .forEach(serviceId -> {
                     // 売却先を利得順にソート
                     List<Integer> consumersList = this.consumerActorIdsList.get(serviceId);
@@ -250,7 +207,7 @@ public class Actor implements Serializable {
                     // 上限まで抜き出し
                     List<Integer> limitConsumerActorIdsList = consumersList
                             .stream()
-                            .limit(Const.MAX_CONSUMERS)
+                            .limit(this.getConfig().getMaxConsumers())
                             .collect(Collectors.toList());
                     // 更新
                     this.consumerActorIdsList.set(serviceId, limitConsumerActorIdsList);
@@ -262,8 +219,8 @@ public class Actor implements Serializable {
      */
     public void growthCapability() {
         double growthRate = 100;
-        IntStream.range(0, SERVICE_COUNT).forEach(serviceId -> {
-            Optional<List<Double>> normalizedConsumersFeatureOptional = ActorUtil.calcConsumersFeature(this.getConsumerActorIdList(serviceId), serviceId);
+        IntStream.range(0, this.getConfig().getServiceCount()).forEach(serviceId -> {
+            Optional<List<Double>> normalizedConsumersFeatureOptional = ActorUtil.calcConsumersFeature(this, this.getConsumerActorIdList(serviceId), serviceId);
             normalizedConsumersFeatureOptional.ifPresent(normalizedConsumersFeature -> {
                 List<Double> curCapability = this.getCapabilities(serviceId);
                 List<Double> newCapability = IntStream.range(0, curCapability.size()).mapToDouble(i -> curCapability.get(i) + normalizedConsumersFeature.get(i) * growthRate).boxed().collect(Collectors.toList());
@@ -275,37 +232,25 @@ public class Actor implements Serializable {
     /**
      * 引数の価格とActorのの現在の価格がしきい値以下かどうか判定し、価格変化フラグを更新する
      */
-    public void checkChangePrices(List<Integer> prices) {
+    public void checkChangePrices(int[] prices) {
         this.isChangePrice = IntStream
-                .range(0, SERVICE_COUNT)
-                .anyMatch(i -> Math.abs(this.prices.get(i) - prices.get(i)) > BALANCE_PRICE_THRESHOLD);
+                .range(0, this.getConfig().getServiceCount())
+                .anyMatch(i -> Math.abs(this.getPrice(i) - prices[i]) > this.getConfig().getBalancePriceThreshold());
     }
 
     /**
      * Actorインスタンスをコピー
+     * 選考希望リストとComparatorはマッチング中だけの状態なのでコピーしない
      *
-     * @return インスタンスのディープコピー
+     * @param copyStore コピー先のストア(ActorStore.copyで複製したもの)
+     * @return copyStore上のインスタンスのディープコピー
      */
-    public Actor deepCopy() {
+    public Actor deepCopy(ActorStore copyStore) {
         Actor copyActor = new Actor();
 
-        copyActor.id = this.id;
-
-        System.arraycopy(this.pos, 0, copyActor.pos, 0, this.pos.length);
-
-        copyActor.capabilities.addAll(this.capabilities);
+        copyActor.store = copyStore;
 
-        for (List<Double> featureVec : this.features) {
-            List<Double> featureVecCopy = new ArrayList<>(featureVec.size());
-            featureVecCopy.addAll(featureVec);
-            copyActor.features.add(featureVecCopy);
-        }
-
-        copyActor.prices.addAll(this.prices);
-
-        copyActor.marketActorIdList.addAll(this.marketActorIdList);
-
-        copyActor.providerActorIdList.addAll(this.providerActorIdList);
+        copyActor.id = this.id;
 
         for (List<Integer> consumersIds : this.consumerActorIdsList) {
             List<Integer> consumerIdsCopy = new ArrayList<>(consumersIds.size());
@@ -313,8 +258,6 @@ public class Actor implements Serializable {
             copyActor.consumerActorIdsList.add(consumerIdsCopy);
         }
 
-        copyActor.isMatches.addAll(this.isMatches);
-
         copyActor.isChangePrice = this.isChangePrice;
 
         return copyActor;
@@ -329,27 +272,27 @@ public class Actor implements Serializable {
                 .append("\n");
 
         stringBuilder.append("pos: ")
-                .append(Arrays.toString(this.pos))
+                .append(Arrays.toString(this.getPos()))
                 .append(" \n");
 
         stringBuilder.append("capabilities: ")
-                .append(Arrays.toString(IntStream.range(0, SERVICE_COUNT).mapToObj(i -> Arrays.toString(this.getCapabilities(i).stream().map(StringUtil::formatTo1f).toArray())).toArray()))
+                .append(Arrays.toString(IntStream.range(0, this.getConfig().getServiceCount()).mapToObj(i -> Arrays.toString(this.getCapabilities(i).stream().map(StringUtil::formatTo1f).toArray())).toArray()))
                 .append("\n");
 
         stringBuilder.append("features: ")
-                .append(Arrays.toString(this.features.stream().map(feature -> Arrays.toString(feature.stream().map(StringUtil::formatTo1f).toArray())).toArray()))
+                .append(Arrays.toString(IntStream.range(0, this.getConfig().getServiceCount()).mapToObj(i -> Arrays.toString(this.getFeature(i).stream().map(StringUtil::formatTo1f).toArray())).toArray()))
                 .append("\n");
 
         stringBuilder.append("prices: ")
-                .append(this.prices.toString())
+                .append(this.getPrices().toString())
                 .append("\n");
 
         stringBuilder.append("marketActors: ")
-                .append(this.marketActorIdList.toString())
+                .append(this.getMarketActorIdList().toString())
                 .append("\n");
 
         stringBuilder.append("providerId: ")
-                .append(this.providerActorIdList.toString())
+                .append(this.getProviderActorIdList().toString())
                 .append("\n");
 
         stringBuilder.append("providerSelectList: ")
@@ -373,8 +316,20 @@ public class Actor implements Serializable {
         return this.id;
     }
 
+    public ActorStore getStore() {
+        return this.store;
+    }
+
+    public SimulationConfig getConfig() {
+        return this.store.getConfig();
+    }
+
+    public Optional<SimulationContext> getContext() {
+        return this.store.getContext();
+    }
+
     public int[] getPos() {
-        return this.pos;
+        return this.store.getPos(this.id);
     }
 
     /**
@@ -385,68 +340,110 @@ public class Actor implements Serializable {
      */
     public List<Double> getCapabilities(int serviceId) {
         // サービスに使用するCapabilityのIDリスト
-        List<Integer> capabilitiesIdList = CAPABILITIES_LISTS.get(serviceId);
-        return capabilitiesIdList.stream()
-                .map(id -> this.capabilities.get(id))
+        int[] capabilitiesIds = this.store.getServiceCapabilityIds(serviceId);
+        return Arrays.stream(capabilitiesIds)
+                .mapToObj(id -> this.store.getCapability(this.id, id))
                 .collect(Collectors.toList());
     }
 
     public void setCapabilities(List<Double> capabilities, int serviceId) {
-        List<Integer> capabilitiesIdList = CAPABILITIES_LISTS.get(serviceId);
-        IntStream.range(0, capabilitiesIdList.size())
-                .forEach(i -> this.capabilities.set(capabilitiesIdList.get(i), capabilities.get(i)));
+        int[] capabilitiesIds = this.store.getServiceCapabilityIds(serviceId);
+        IntStream.range(0, capabilitiesIds.length)
+                .forEach(i -> this.store.setCapability(this.id, capabilitiesIds[i], capabilities.get(i)));
     }
 
     public List<Double> getCapabilities() {
-        return this.capabilities;
+        return IntStream.range(0, this.getConfig().getCapabilityCount())
+                .mapToObj(i -> this.store.getCapability(this.id, i))
+                .collect(Collectors.toList());
     }
 
     public List<Double> getFeature(int serviceId) {
-        return this.features.get(serviceId);
+        return IntStream.range(0, this.store.getServiceCapabilityIds(serviceId).length)
+                .mapToObj(dim -> this.store.getFeature(this.id, serviceId, dim))
+                .collect(Collectors.toList());
     }
 
     public int getPrice(int serviceId) {
-        return this.prices.get(serviceId);
+        return this.store.getPrice(this.id, serviceId);
     }
 
     public void setPrices(List<Integer> prices) {
-        this.prices = prices;
+        IntStream.range(0, this.getConfig().getServiceCount())
+                .forEach(serviceId -> this.store.setPrice(this.id, serviceId, prices.get(serviceId)));
+    }
+
+    /**
+     * 価格均衡ループの次の回の価格を書き込み、現在の価格から変化したか判定する
+     * 価格はActorStore.swapPricesで反映される
+     */
+    public void setNextPrices(int[] prices) {
+        this.checkChangePrices(prices);
+        for (int serviceId = 0; serviceId < prices.length; serviceId++) {
+            this.store.setNextPrice(this.id, serviceId, prices[serviceId]);
+        }
+    }
+
+    /**
+     * 価格均衡ループの次の回も現在の価格のままにする
+     */
+    public void keepPrices() {
+        this.isChangePrice = false;
+        for (int serviceId = 0; serviceId < this.getConfig().getServiceCount(); serviceId++) {
+            this.store.setNextPrice(this.id, serviceId, this.getPrice(serviceId));
+        }
     }
 
     public List<Integer> getPrices() {
-        return this.prices;
+        return IntStream.range(0, this.getConfig().getServiceCount())
+                .mapToObj(this::getPrice)
+                .collect(Collectors.toList());
     }
 
     public List<Integer> getMarketActorIdList() {
-        return this.marketActorIdList;
+        return this.store.getMarketActorIdList(this.id);
+    }
+
+    public int getMarketActorCount() {
+        return this.store.getMarketActorCount(this.id);
+    }
+
+    public int getMarketActorId(int i) {
+        return this.store.getMarketActorId(this.id, i);
     }
 
     public int getProviderId(int serviceId) {
-        return this.providerActorIdList.get(serviceId);
+        return this.store.getProviderId(this.id, serviceId);
     }
 
     public List<Integer> getProviderActorIdList() {
-        return this.providerActorIdList;
+        return IntStream.range(0, this.getConfig().getServiceCount())
+                .mapToObj(this::getProviderId)
+                .collect(Collectors.toList());
     }
 
     public void setProviderActorId(int serviceId, int actorId) {
-        this.providerActorIdList.set(serviceId, actorId);
+        this.store.setProviderId(this.id, serviceId, actorId);
     }
 
     public List<Integer> getConsumerActorIdList(int serviceId) {
         return this.consumerActorIdsList.get(serviceId);
     }
 
+    public void setConsumerActorIdList(int serviceId, List<Integer> consumerActorIdList) {
+        this.consumerActorIdsList.set(serviceId, consumerActorIdList);
+    }
+
     public List<List<Integer>> getConsumerActorIdsList() {
         return this.consumerActorIdsList;
     }
 
     public void setIsMach(int serviceId, boolean isMatch) {
-        this.isMatches.set(serviceId, isMatch);
+        this.store.setMatch(this.id, serviceId, isMatch);
     }
 
     public boolean isMatch(int serviceId) {
-        return this.isMatches.get(serviceId);
+        return this.store.isMatch(this.id, serviceId);
     }
 
     public boolean isChangePrice() {
@@ -454,4 +451,3 @@ public class Actor implements Serializable {
     }
 
 }
-
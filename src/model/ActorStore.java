@@ -0,0 +1,368 @@
+package model;
+
+import util.CalcUtil;
+import util.SimulationConfig;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static util.Const.DIM;
+
+/**
+ * 全Actorの状態をプリミティブ配列にまとめて保持するストア(structure of arrays)
+ * ActorはこのストアのIDに対応する位置を参照するビューになる
+ */
+public class ActorStore implements Serializable {
+
+    private static final long serialVersionUID = -7218944798040990299L;
+
+    // シミュレーションの設定
+    private final SimulationConfig config;
+    // Actor数
+    private final int actorCount;
+    // サービス数
+    private final int serviceCount;
+    // 1ActorあたりのCapabilityの数
+    private final int capabilityCount;
+    // 各サービスに使用するCapabilityのID
+    private final int[][] serviceCapabilityIds;
+    // 各サービスのCapabilityのIDが連続している場合はその先頭ID、連続していなければ-1
+    private final int[] serviceCapabilityOffsets;
+    // 各サービスの評価ベクトルの先頭位置、末尾に1Actorあたりの評価ベクトルの長さ
+    private final int[] featureOffsets;
+
+    // 座標 [actorId * DIM + dim]
+    private final int[] positions;
+    // Capability(能力) [actorId * CAPABILITY_COUNT + capabilityId]
+    private final double[] capabilities;
+    // 評価ベクトル [actorId * featureStride + featureOffsets[serviceId] + dim]
+    private final double[] features;
+    // 価格 [actorId * SERVICE_COUNT + serviceId]
+    private int[] prices;
+    // 価格均衡ループの次の回の価格(書き込み用)、swapPricesでpricesと入れ替える(保存せず、最初に書き込む時に確保する)
+    private transient volatile int[] nextPrices;
+    // 購入先ActorのID [actorId * SERVICE_COUNT + serviceId]
+    private final int[] providerIds;
+    // サービス交換相手が確定したか [actorId * SERVICE_COUNT + serviceId]
+    private final boolean[] matches;
+    // 市場範囲のActor(CSR形式)、actorIdのActorはmarketActorIds[marketOffsets[actorId]..marketOffsets[actorId + 1])
+    private int[] marketOffsets;
+    private int[] marketActorIds;
+    // このストアを所有するシミュレーション(保存しない)
+    private transient SimulationContext context;
+
+    public ActorStore(SimulationConfig config) {
+        this(config,
+                new int[config.getActorCount() * DIM],
+                new double[config.getActorCount() * config.getCapabilityCount()],
+                new double[config.getActorCount() * config.getCapabilitiesLists().stream().mapToInt(List::size).sum()],
+                new int[config.getActorCount() * config.getServiceCount()],
+                new int[config.getActorCount() * config.getServiceCount()],
+                new boolean[config.getActorCount() * config.getServiceCount()],
+                new int[config.getActorCount() + 1],
+                new int[0]);
+    }
+
+    private ActorStore(SimulationConfig config, int[] positions, double[] capabilities, double[] features,
+                       int[] prices, int[] providerIds, boolean[] matches, int[] marketOffsets, int[] marketActorIds) {
+        this.config = config;
+        this.actorCount = config.getActorCount();
+        this.serviceCount = config.getServiceCount();
+        this.capabilityCount = config.getCapabilityCount();
+
+        this.serviceCapabilityIds = config.getCapabilitiesLists().stream()
+                .map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        this.serviceCapabilityOffsets = Arrays.stream(this.serviceCapabilityIds)
+                .mapToInt(ids -> (ids.length > 0 && IntStream.range(0, ids.length).allMatch(i -> ids[i] == ids[0] + i)) ? ids[0] : -1)
+                .toArray();
+        this.featureOffsets = new int[this.serviceCount + 1];
+        for (int serviceId = 0; serviceId < this.serviceCount; serviceId++) {
+            this.featureOffsets[serviceId + 1] = this.featureOffsets[serviceId] + this.serviceCapabilityIds[serviceId].length;
+        }
+
+        int actorServiceCount = this.actorCount * this.serviceCount;
+        checkLength("positions", positions.length, this.actorCount * DIM);
+        checkLength("capabilities", capabilities.length, this.actorCount * this.capabilityCount);
+        checkLength("features", features.length, this.actorCount * this.getFeatureStride());
+        checkLength("prices", prices.length, actorServiceCount);
+        checkLength("providerIds", providerIds.length, actorServiceCount);
+        checkLength("matches", matches.length, actorServiceCount);
+        checkLength("marketOffsets", marketOffsets.length, this.actorCount + 1);
+        this.positions = positions;
+        this.capabilities = capabilities;
+        this.features = features;
+        this.prices = prices;
+        this.providerIds = providerIds;
+        this.matches = matches;
+        this.marketOffsets = marketOffsets;
+        this.marketActorIds = marketActorIds;
+    }
+
+    /**
+     * 配列をコピーせずにそのまま参照するストア(ログの復元用)
+     * 配列の並びはフィールドのコメントの通りで、ストアが所有する
+     * 評価ベクトルのように変更しない配列は複数のストアで共有してよい
+     */
+    public static ActorStore wrap(SimulationConfig config, int[] positions, double[] capabilities, double[] features,
+                                  int[] prices, int[] providerIds, boolean[] matches, int[] marketOffsets, int[] marketActorIds) {
+        return new ActorStore(config, positions, capabilities, features, prices, providerIds, matches, marketOffsets, marketActorIds);
+    }
+
+    private static void checkLength(String name, int length, int expected) {
+        if (length != expected) throw new IllegalArgumentException(name + " must have " + expected + " values: " + length);
+    }
+
+    // Copy用
+    private ActorStore(ActorStore store) {
+        this.config = store.config;
+        this.actorCount = store.actorCount;
+        this.serviceCount = store.serviceCount;
+        this.capabilityCount = store.capabilityCount;
+        this.serviceCapabilityIds = store.serviceCapabilityIds;
+        this.serviceCapabilityOffsets = store.serviceCapabilityOffsets;
+        this.featureOffsets = store.featureOffsets;
+        this.positions = store.positions.clone();
+        this.capabilities = store.capabilities.clone();
+        this.features = store.features.clone();
+        this.prices = store.prices.clone();
+        this.providerIds = store.providerIds.clone();
+        this.matches = store.matches.clone();
+        this.marketOffsets = store.marketOffsets.clone();
+        this.marketActorIds = store.marketActorIds.clone();
+    }
+
+    /**
+     * ストアをコピー
+     *
+     * @return 配列をすべて複製したストア
+     */
+    public ActorStore copy() {
+        return new ActorStore(this);
+    }
+
+    /**
+     * 全Actorの市場範囲のActorを更新
+     *
+     * @param marketActorIdsList 各Actorの市場範囲にいるActorのIDの配列
+     */
+    public void setMarketActorIds(int[][] marketActorIdsList) {
+        int[] offsets = new int[this.actorCount + 1];
+        for (int actorId = 0; actorId < this.actorCount; actorId++) {
+            offsets[actorId + 1] = offsets[actorId] + marketActorIdsList[actorId].length;
+        }
+        int[] ids = new int[offsets[this.actorCount]];
+        for (int actorId = 0; actorId < this.actorCount; actorId++) {
+            System.arraycopy(marketActorIdsList[actorId], 0, ids, offsets[actorId], marketActorIdsList[actorId].length);
+        }
+        this.marketOffsets = offsets;
+        this.marketActorIds = ids;
+    }
+
+    /**
+     * 全Actorの市場範囲のActorをCSR形式の配列で更新
+     *
+     * @param marketOffsets  各Actorの先頭位置(actorCount + 1個)、このストアが所有する
+     * @param marketActorIds 市場範囲のActorのID、このストアが所有する
+     */
+    public void setMarketActorIds(int[] marketOffsets, int[] marketActorIds) {
+        this.marketOffsets = marketOffsets;
+        this.marketActorIds = marketActorIds;
+    }
+
+    /**
+     * providerのCapabilityとconsumerの評価ベクトルの内積
+     */
+    public double dotCapabilityFeature(int providerId, int consumerId, int serviceId) {
+        int[] capabilityIds = this.serviceCapabilityIds[serviceId];
+        int featureStart = this.getFeatureStart(consumerId, serviceId);
+        int capabilityStart = providerId * this.capabilityCount;
+        // Capabilityが連続していれば連続領域同士の内積
+        if (this.serviceCapabilityOffsets[serviceId] >= 0) {
+            return CalcUtil.dotProduct(this.capabilities, capabilityStart + this.serviceCapabilityOffsets[serviceId], this.features, featureStart, capabilityIds.length);
+        }
+        double res = 0;
+        for (int i = 0; i < capabilityIds.length; i++) {
+            res += this.capabilities[capabilityStart + capabilityIds[i]] * this.features[featureStart + i];
+        }
+        return res;
+    }
+
+    /**
+     * 2つのActorの距離の2乗
+     */
+    public double calcDistSquared(int actorIdA, int actorIdB) {
+        return CalcUtil.calcDistSquared(this.positions, actorIdA * DIM, this.positions, actorIdB * DIM, this.config.getFieldSize());
+    }
+
+    /**
+     * 座標posとActorの距離の2乗
+     */
+    public double calcDistSquared(int[] pos, int actorId) {
+        return CalcUtil.calcDistSquared(pos, 0, this.positions, actorId * DIM, this.config.getFieldSize());
+    }
+
+    void setContext(SimulationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * このストアを所有するシミュレーション
+     * ファイルから読み込んだだけのストアなど、Contextに登録されていなければempty
+     */
+    public Optional<SimulationContext> getContext() {
+        return Optional.ofNullable(this.context);
+    }
+
+    public SimulationConfig getConfig() {
+        return this.config;
+    }
+
+    public int getActorCount() {
+        return this.actorCount;
+    }
+
+    public int getPos(int actorId, int dim) {
+        return this.positions[actorId * DIM + dim];
+    }
+
+    public void setPos(int actorId, int dim, int pos) {
+        this.positions[actorId * DIM + dim] = pos;
+    }
+
+    public int[] getPos(int actorId) {
+        return Arrays.copyOfRange(this.positions, actorId * DIM, (actorId + 1) * DIM);
+    }
+
+    public double getCapability(int actorId, int capabilityId) {
+        return this.capabilities[actorId * this.capabilityCount + capabilityId];
+    }
+
+    public void setCapability(int actorId, int capabilityId, double capability) {
+        this.capabilities[actorId * this.capabilityCount + capabilityId] = capability;
+    }
+
+    public int[] getServiceCapabilityIds(int serviceId) {
+        return this.serviceCapabilityIds[serviceId];
+    }
+
+    public int getFeatureStride() {
+        return this.featureOffsets[this.serviceCount];
+    }
+
+    public int getFeatureStart(int actorId, int serviceId) {
+        return actorId * this.getFeatureStride() + this.featureOffsets[serviceId];
+    }
+
+    /**
+     * 全Actorの評価ベクトルのコピー [actorId * featureStride + featureOffsets[serviceId] + dim]
+     */
+    public double[] copyFeatures() {
+        return this.features.clone();
+    }
+
+    public double getFeature(int actorId, int serviceId, int dim) {
+        return this.features[this.getFeatureStart(actorId, serviceId) + dim];
+    }
+
+    public void setFeature(int actorId, int serviceId, int dim, double feature) {
+        this.features[this.getFeatureStart(actorId, serviceId) + dim] = feature;
+    }
+
+    public int getPrice(int actorId, int serviceId) {
+        return this.prices[actorId * this.serviceCount + serviceId];
+    }
+
+    public void setPrice(int actorId, int serviceId, int price) {
+        this.prices[actorId * this.serviceCount + serviceId] = price;
+    }
+
+    /**
+     * 価格均衡ループの次の回の価格を書き込む
+     * swapPricesまでgetPriceは現在の価格を返すので、並列に計算中のActorは同じ価格を読む
+     */
+    public void setNextPrice(int actorId, int serviceId, int price) {
+        this.getNextPrices()[actorId * this.serviceCount + serviceId] = price;
+    }
+
+    /**
+     * 次の回の価格を現在の価格にする(価格均衡ループの各回の終わりに1度だけ呼ぶ)
+     * 全Actorの次の回の価格を書き込んでから呼ぶ
+     */
+    public void swapPrices() {
+        int[] prices = this.prices;
+        this.prices = this.getNextPrices();
+        this.nextPrices = prices;
+    }
+
+    /**
+     * 次の回の価格の配列(ログから復元したストアでは価格均衡ループを行わないので確保しない)
+     */
+    private int[] getNextPrices() {
+        int[] nextPrices = this.nextPrices;
+        return (nextPrices != null) ? nextPrices : this.allocateNextPrices();
+    }
+
+    // 並列に計算中のActorが同時に書き込み始めても1度だけ確保する
+    private synchronized int[] allocateNextPrices() {
+        if (this.nextPrices == null) this.nextPrices = new int[this.prices.length];
+        return this.nextPrices;
+    }
+
+    /**
+     * 全Actorの価格のコピー [actorId * SERVICE_COUNT + serviceId]
+     */
+    public int[] copyPrices() {
+        return this.prices.clone();
+    }
+
+    public int getProviderId(int actorId, int serviceId) {
+        return this.providerIds[actorId * this.serviceCount + serviceId];
+    }
+
+    public void setProviderId(int actorId, int serviceId, int providerId) {
+        this.providerIds[actorId * this.serviceCount + serviceId] = providerId;
+    }
+
+    public boolean isMatch(int actorId, int serviceId) {
+        return this.matches[actorId * this.serviceCount + serviceId];
+    }
+
+    public void setMatch(int actorId, int serviceId, boolean isMatch) {
+        this.matches[actorId * this.serviceCount + serviceId] = isMatch;
+    }
+
+    public int getMarketActorCount(int actorId) {
+        return this.marketOffsets[actorId + 1] - this.marketOffsets[actorId];
+    }
+
+    public int getMarketActorId(int actorId, int i) {
+        return this.marketActorIds[this.marketOffsets[actorId] + i];
+    }
+
+    /**
+     * 市場範囲のActorのIDのリスト
+     * CSR配列の読み取り専用ビューでコピーはしない
+     */
+    public List<Integer> getMarketActorIdList(int actorId) {
+        int[] ids = this.marketActorIds;
+        int start = this.marketOffsets[actorId];
+        int size = this.marketOffsets[actorId + 1] - start;
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                if (index < 0 || index >= size) throw new IndexOutOfBoundsException(String.valueOf(index));
+                return ids[start + index];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package model;
+
+import util.ActorUtil;
+import util.CalcUtil;
+import util.ProviderRanking;
+import util.SimulationConfig;
+import util.SpatialGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 1回のシミュレーションの状態(設定、Actor、キャッシュ)を保持する
+ * 異なるContextは状態を共有しないため、1つのJVMで複数のシミュレーションを同時に実行できる
+ */
+public final class SimulationContext {
+
+    private final SimulationConfig config;
+    private final ActorStore store;
+    private final List<Actor> actors;
+
+    // 市場範囲探索用の空間インデックス
+    private SpatialGrid spatialGrid;
+    // 価格均衡ループ1回の間有効な購入先の順位キャッシュ
+    private ProviderRanking providerRanking;
+
+    private SimulationContext(SimulationConfig config, ActorStore store) {
+        this.config = config;
+        this.store = store;
+        this.actors = new ArrayList<>(config.getActorCount());
+        store.setContext(this);
+    }
+
+    /**
+     * 設定からActorを生成
+     * 各Actorは設定のシードとIDから導いた自分専用の乱数で生成するため、並列に生成しても
+     * スレッド数や生成順によらず同じ設定なら同じActorのリストになる
+     */
+    public static SimulationContext create(SimulationConfig config) {
+        SimulationContext context = new SimulationContext(config, new ActorStore(config));
+        // 各Actorはストアの自分の領域にだけ書き込むので並列に生成できる
+        context.actors.addAll(IntStream.range(0, config.getActorCount())
+                .parallel()
+                .mapToObj(id -> new Actor(context.store, id,
+                        CalcUtil.createRandom(config.getPosSeed(), id),
+                        CalcUtil.createRandom(config.getCapabilitySeed(), id),
+                        CalcUtil.createRandom(config.getFeatureSeed(), id)))
+                .collect(Collectors.toList()));
+        return context;
+    }
+
+    /**
+     * 設定からTest用Actorを生成
+     */
+    public static SimulationContext createTest(SimulationConfig config) {
+        SimulationContext context = new SimulationContext(config, new ActorStore(config));
+        IntStream.range(0, config.getActorCount())
+                .forEach(id -> context.actors.add(new Actor(context.store, id, "test")));
+        return context;
+    }
+
+    /**
+     * 生成済みのActorのリスト(ファイルから読み込んだログなど)のContext
+     * Actorのストアはこのリストのものとして扱われる
+     */
+    public static SimulationContext of(List<Actor> actors) {
+        ActorStore store = actors.get(0).getStore();
+        SimulationContext context = new SimulationContext(store.getConfig(), store);
+        context.actors.addAll(actors);
+        return context;
+    }
+
+    /**
+     * 現在のActorの座標で空間インデックスを再構築
+     * updateMarketActorsの前に1Stepに1回呼ぶ
+     */
+    public void updateSpatialGrid() {
+        this.spatialGrid = this.config.isUseSpatialGrid() ? SpatialGrid.build(this.actors) : null;
+    }
+
+    /**
+     * 空間インデックスを破棄(以降の市場範囲の探索は総当たり)
+     */
+    public void clearSpatialGrid() {
+        this.spatialGrid = null;
+    }
+
+    /**
+     * 全Actorの市場範囲にいるActorを更新し、ストアに登録
+     */
+    public void updateMarketActors() {
+        int[][] marketActorIdsList = this.actors.parallelStream()
+                .map(actor -> {
+                    List<Integer> marketActors = new ArrayList<>();
+                    ActorUtil.updateMarketActors(actor, actor.getPos(), marketActors);
+                    return marketActors.stream().mapToInt(Integer::intValue).toArray();
+                })
+                .toArray(int[][]::new);
+        this.store.setMarketActorIds(marketActorIdsList);
+    }
+
+    /**
+     * 現在の価格で購入先の順位キャッシュを生成
+     * 価格を変更したらclearProviderRankingで破棄すること
+     */
+    public void updateProviderRanking() {
+        this.providerRanking = ProviderRanking.build(this.actors);
+    }
+
+    /**
+     * 購入先の順位キャッシュを破棄
+     */
+    public void clearProviderRanking() {
+        this.providerRanking = null;
+    }
+
+    public SimulationConfig getConfig() {
+        return this.config;
+    }
+
+    public ActorStore getStore() {
+        return this.store;
+    }
+
+    public List<Actor> getActors() {
+        return this.actors;
+    }
+
+    public Optional<SpatialGrid> getSpatialGrid() {
+        return Optional.ofNullable(this.spatialGrid);
+    }
+
+    public Optional<ProviderRanking> getProviderRanking() {
+        return Optional.ofNullable(this.providerRanking);
+    }
+}
@@ -0,0 +1,140 @@
+package simulation;
+
+import util.SimulationConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * 複数のシミュレーションを上限付きのスレッドプールで並列に実行する
+ * 各シミュレーションは独立したSimulationContextを持つため、状態を共有しない
+ */
+public class BatchExecutor {
+
+    private final int parallelism;
+    // 同じ設定で中断したシミュレーションをCheckpointから再開するか
+    private final boolean resume;
+
+    /**
+     * @param parallelism 同時に実行するシミュレーションの最大数
+     */
+    public BatchExecutor(int parallelism) {
+        this(parallelism, false);
+    }
+
+    /**
+     * @param parallelism 同時に実行するシミュレーションの最大数
+     * @param resume      同じ設定で中断したシミュレーションをCheckpointから再開するか
+     */
+    public BatchExecutor(int parallelism, boolean resume) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        this.parallelism = parallelism;
+        this.resume = resume;
+    }
+
+    /**
+     * すべての設定のシミュレーションを実行し、終了を待つ
+     *
+     * @param configs      各シミュレーションの設定
+     * @param fileNameFunc シミュレーションの番号から保存するファイル名を返す関数
+     * @return 各シミュレーションの結果(configsと同じ順)
+     */
+    public List<Result> run(List<SimulationConfig> configs, IntFunction<String> fileNameFunc) throws InterruptedException {
+        int threadCount = Math.min(this.parallelism, Math.max(1, configs.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(configs.size());
+            for (int i = 0; i < configs.size(); i++) {
+                int index = i;
+                SimulationConfig config = splitPriceParallelism(configs.get(i), threadCount);
+                futures.add(executor.submit(() -> runOne(index, config, fileNameFunc.apply(index))));
+            }
+
+            List<Result> results = new ArrayList<>(futures.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("simulation failed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 価格探索のワーカー数が未指定(0)なら、同時に実行するシミュレーションでCPUを分け合う数にする
+     * 各シミュレーションがCPU数のワーカーを持つとthreadCount倍に過剰になるため
+     */
+    private static SimulationConfig splitPriceParallelism(SimulationConfig config, int threadCount) {
+        if (config.getPriceParallelism() != 0) return config;
+        int priceParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / threadCount);
+        return config.toBuilder().priceParallelism(priceParallelism).build();
+    }
+
+    private Result runOne(int index, SimulationConfig config, String fileName) throws IOException {
+        long startTime = System.nanoTime();
+        ServiceSimulation serviceSimulation = ServiceSimulation.open(fileName, config, this.resume);
+        // 並列実行時は出力が混ざるので進捗は表示しない
+        serviceSimulation.setVerbose(false);
+        serviceSimulation.mainLoop();
+        long totalTime = System.nanoTime() - startTime;
+        return new Result(index, config, fileName, serviceSimulation.getStepTimes(), totalTime,
+                serviceSimulation.getPriceWorkerUtilizations());
+    }
+
+    /**
+     * 1回のシミュレーションの結果
+     */
+    public static class Result {
+        private final int index;
+        private final SimulationConfig config;
+        private final String fileName;
+        // 各Stepの実行時間(ns)
+        private final List<Long> stepTimes;
+        // Actor生成から保存までの実行時間(ns)
+        private final long totalTime;
+        // 売上最大の価格を計算した各ワーカーの稼働率
+        private final double[] priceWorkerUtilizations;
+
+        private Result(int index, SimulationConfig config, String fileName, List<Long> stepTimes, long totalTime,
+                       double[] priceWorkerUtilizations) {
+            this.index = index;
+            this.config = config;
+            this.fileName = fileName;
+            this.stepTimes = Collections.unmodifiableList(new ArrayList<>(stepTimes));
+            this.totalTime = totalTime;
+            this.priceWorkerUtilizations = priceWorkerUtilizations.clone();
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public SimulationConfig getConfig() {
+            return this.config;
+        }
+
+        public String getFileName() {
+            return this.fileName;
+        }
+
+        public List<Long> getStepTimes() {
+            return this.stepTimes;
+        }
+
+        public long getTotalTime() {
+            return this.totalTime;
+        }
+
+        public double[] getPriceWorkerUtilizations() {
+            return this.priceWorkerUtilizations.clone();
+        }
+    }
+}
@@ -3,14 +3,16 @@ package simulation;
 import model.Actor;
 import util.ActorUtil;
 import util.ConsumerComparator;
+import util.PriceBreakpointSearch;
+import util.PriceSearchMode;
+import util.PriceWarmStartSearch;
+import util.SimulationConfig;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import static util.Const.*;
 
 /**
  * Created by yutakase on 2016/12/05.
@@ -18,24 +20,37 @@ import static util.Const.*;
 public class PriceSimulation extends Simulation {
 
     private Actor hostActor;
-    private int price = MIN_PRICE;
-    private List<Integer> bestPrices;
-    private List<Integer> bestPayoff;
+    private SimulationConfig config;
+    private PriceSearchMode searchMode;
+    private int price;
+    private int[] bestPrices;
+    private int[] bestPayoff;
 
     public PriceSimulation(Actor hostActor) {
+        this(hostActor, hostActor.getConfig().getPriceSearchMode());
+    }
+
+    public PriceSimulation(Actor hostActor, PriceSearchMode searchMode) {
         this.hostActor = hostActor;
+        this.config = hostActor.getConfig();
+        this.searchMode = searchMode;
+        this.price = this.config.getMinPrice();
     }
 
     @Override
     protected void init() {
-        this.bestPrices = Stream
-                .generate(() -> MIN_PRICE)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
-        this.bestPayoff = Stream
-                .generate(() -> 0)
-                .limit(SERVICE_COUNT)
-                .collect(Collectors.toList());
+        this.bestPrices = new int[this.config.getServiceCount()];
+        Arrays.fill(this.bestPrices, this.config.getMinPrice());
+        this.bestPayoff = new int[this.config.getServiceCount()];
+
+        // 掃引しない場合はブレークポイントのみを評価して終了
+        if (this.searchMode != PriceSearchMode.SWEEP) {
+            int deltaPrice = (this.searchMode == PriceSearchMode.CONTINUOUS) ? 1 : this.config.getDeltaPrice();
+            IntStream.range(0, this.config.getServiceCount()).forEach(serviceId ->
+                    this.bestPrices[serviceId] = (this.searchMode == PriceSearchMode.WARM_START)
+                            ? PriceWarmStartSearch.searchBestPrice(this.hostActor, serviceId, this.config.getMinPrice(), this.config.getMaxPrice(), deltaPrice)
+                            : PriceBreakpointSearch.searchBestPrice(this.hostActor, serviceId, this.config.getMinPrice(), this.config.getMaxPrice(), deltaPrice));
+        }
     }
 
     @Override
@@ -45,12 +60,13 @@ public class PriceSimulation extends Simulation {
     @Override
     protected void step() {
         // 各サービス
-        IntStream.range(0, SERVICE_COUNT).forEach(serviceId -> {
+        IntStream.range(0, this.config.getServiceCount()).forEach(serviceId -> {
             // 売却先Actorのリストを生成
             Optional<List<Integer>> consumersIdListOptional = ActorUtil.countConsumerSimulate(this.hostActor, this.price, serviceId);
             consumersIdListOptional.ifPresent(consumersIdList -> {
                 // 売却数制限
-                int consumerCount = (consumersIdList.size() < MAX_CONSUMERS) ? consumersIdList.size() : MAX_CONSUMERS;
+                int maxConsumers = this.config.getMaxConsumers();
+                int consumerCount = (consumersIdList.size() < maxConsumers) ? consumersIdList.size() : maxConsumers;
                 // 売却先に自分がいるなら売却数の数を1減らす
                 consumersIdList.sort(new ConsumerComparator(this.hostActor, serviceId).reversed());
                 boolean isContainSelf =
@@ -63,21 +79,21 @@ public class PriceSimulation extends Simulation {
                 // 売上計算
                 int payoff = consumerCount * this.price;
                 // 売上最大の価格に更新
-                if (payoff > bestPayoff.get(serviceId)) {
-                    this.bestPrices.set(serviceId, this.price);
-                    this.bestPayoff.set(serviceId, payoff);
+                if (payoff > this.bestPayoff[serviceId]) {
+                    this.bestPrices[serviceId] = this.price;
+                    this.bestPayoff[serviceId] = payoff;
                 }
             });
         });
-        this.price += DELTA_PRICE;
+        this.price += this.config.getDeltaPrice();
     }
 
     @Override
     protected boolean isSimulationFinished() {
-        return this.price > MAX_PRICE;
+        return this.searchMode != PriceSearchMode.SWEEP || this.price > this.config.getMaxPrice();
     }
 
-    public Optional<List<Integer>> getBestPrices() {
+    public Optional<int[]> getBestPrices() {
         return Optional.ofNullable(this.bestPrices);
     }
 }
@@ -1,56 +1,172 @@
 package simulation;
 
 import model.Actor;
-import util.ActorUtil;
+import model.ActorStore;
+import model.SimulationContext;
+import util.Checkpoint;
 import util.DeferredAcceptance;
-import util.FileIO;
+import util.LongestFirstScheduler;
+import util.OscillationPolicy;
+import util.PriceCycleDetector;
+import util.PriceSearchMode;
+import util.SimulationConfig;
+import util.StreamingLogSink;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import static util.Const.*;
 
 /**
  * Created by yutakase on 2016/09/24.
  */
 public class ServiceSimulation extends Simulation {
 
+    private SimulationConfig config;
+    private SimulationContext context;
     private List<Actor> actors;
-    private List<List<Integer>> bestPricesList = new ArrayList<>(ACTOR_COUNT);
-    private List<List<Actor>> logList = new ArrayList<>(SIMULATION_COUNT);
-    private List<List<List<Integer>>> pricesList = new ArrayList<>(BALANCE_PRICE_MAX_COUNT);
+    private ActorStore store;
+    // 価格均衡ループで価格を固定したActor、nullなら固定しない
+    private boolean[] frozenActors;
+    // 価格均衡ループで価格を変えずに続ける振動を報告済みか、以降も同じ周期を繰り返すので検出しない
+    private boolean cycleReported;
+    // 価格均衡ループの価格の振動の検出
+    private PriceCycleDetector cycleDetector;
+    // 売上最大の価格の計算を市場範囲の大きいActorから並列実行する
+    private LongestFirstScheduler priceScheduler;
+    // 各Stepで価格の振動を検出したActorのID
+    private List<int[]> oscillatingActorIdsList;
+    // ログの書き込み先、Step毎に追記する
+    private StreamingLogSink logSink;
+    // 再開する場合のCheckpoint
+    private Checkpoint resumeCheckpoint;
+    // 各Stepの実行時間(ns)
+    private List<Long> stepTimes;
 
     private String saveActorFileName;
+    // 進捗を標準出力に表示するか
+    private boolean verbose = true;
 
     public ServiceSimulation(String saveActorFileName) {
+        this(saveActorFileName, SimulationConfig.DEFAULT);
+    }
+
+    public ServiceSimulation(String saveActorFileName, SimulationConfig config) {
+        this.config = config;
         // Actorのリスト生成
-        this.actors = ActorUtil.createActors();
-//        this.actors = ActorUtil.createTestActors();
-        this.bestPricesList = Stream
-                .generate((Supplier<ArrayList<Integer>>) ArrayList::new)
-                .limit(ACTOR_COUNT)
-                .collect(Collectors.toList());
+        this.context = SimulationContext.create(config);
+//        this.context = SimulationContext.createTest(config);
+        this.actors = this.context.getActors();
+        this.store = this.context.getStore();
+        this.stepTimes = new ArrayList<>(config.getSimulationCount());
+        this.oscillatingActorIdsList = new ArrayList<>(config.getSimulationCount());
+        this.saveActorFileName = saveActorFileName;
+    }
+
+    private ServiceSimulation(String saveActorFileName, SimulationConfig config, Checkpoint checkpoint) {
+        this.config = config;
+        this.context = SimulationContext.of(checkpoint.restoreActors());
+        this.actors = this.context.getActors();
+        this.store = this.context.getStore();
+        this.stepTimes = new ArrayList<>(this.config.getSimulationCount());
+        this.oscillatingActorIdsList = new ArrayList<>(this.config.getSimulationCount());
         this.saveActorFileName = saveActorFileName;
+        this.resumeCheckpoint = checkpoint;
+    }
+
+    /**
+     * Checkpointから中断したシミュレーションを再開する
+     * 設定はCheckpointのもので、ログはCheckpointの時点までを残して続きを追記する
+     *
+     * @param saveActorFileName 中断したシミュレーションのログのファイル名
+     */
+    public static ServiceSimulation resume(String saveActorFileName) throws IOException {
+        return resume(saveActorFileName, Checkpoint.read(checkpointFileName(saveActorFileName)));
+    }
+
+    /**
+     * 読み込み済みのCheckpointから再開する
+     */
+    public static ServiceSimulation resume(String saveActorFileName, Checkpoint checkpoint) {
+        return new ServiceSimulation(saveActorFileName, checkpoint.getConfig(), checkpoint);
+    }
+
+    /**
+     * resumeがtrueで、同じ設定(SimulationConfig.isSameSimulation)で中断したCheckpointがあれば再開し、なければ最初から実行する
+     * 再開する場合も実行時のみの設定はconfigのものを使う
+     *
+     * @param saveActorFileName 保存するファイル名
+     * @param config            設定
+     * @param resume            Checkpointから再開するか
+     */
+    public static ServiceSimulation open(String saveActorFileName, SimulationConfig config, boolean resume) throws IOException {
+        String checkpointFileName = checkpointFileName(saveActorFileName);
+        if (!resume || !Files.exists(Paths.get(checkpointFileName))) {
+            return new ServiceSimulation(saveActorFileName, config);
+        }
+        Checkpoint checkpoint = Checkpoint.read(checkpointFileName);
+        if (!checkpoint.getConfig().isSameSimulation(config)) {
+            // ログを上書きするので黙って捨てない
+            System.err.println("checkpoint has a different config, start over: " + checkpointFileName);
+            return new ServiceSimulation(saveActorFileName, config);
+        }
+        return new ServiceSimulation(saveActorFileName, config, checkpoint);
+    }
+
+    /**
+     * Checkpointのファイル名
+     */
+    public static String checkpointFileName(String saveActorFileName) {
+        return "checkpoint_" + saveActorFileName;
+    }
+
+    @Override
+    protected int getFirstStepCount() {
+        return this.resumeCheckpoint == null ? 0 : this.resumeCheckpoint.getStepCount();
     }
 
     @Override
     protected void init() {
+        this.cycleDetector = new PriceCycleDetector(this.config.getActorCount(), this.config.getServiceCount(), this.config.getOscillationHistory());
+        this.priceScheduler = new LongestFirstScheduler(this.config.getPriceParallelism());
+        try {
+            String priceFileName = "price_" + this.saveActorFileName;
+            this.logSink = this.resumeCheckpoint == null
+                    ? new StreamingLogSink(this.saveActorFileName, priceFileName, this.store)
+                    : StreamingLogSink.resume(this.saveActorFileName, priceFileName, this.resumeCheckpoint);
+            // Checkpointの配列はActorが使っているので、以降は参照しない
+            this.resumeCheckpoint = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     protected void close() {
-        FileIO.writeActorLog(this.saveActorFileName, this.logList);
-        FileIO.writePriceLog("price_" + this.saveActorFileName, this.pricesList);
-        System.out.println("Save to " + saveActorFileName);
+        this.priceScheduler.close();
+        try {
+            this.logSink.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (this.verbose) {
+            System.out.println("Save to " + saveActorFileName);
+            System.out.println("price worker utilization: " + Arrays.stream(this.priceScheduler.getUtilizations())
+                    .mapToObj(utilization -> String.format("%.2f", utilization))
+                    .collect(Collectors.joining(" ")));
+        }
     }
 
     @Override
     protected void step() {
-        System.out.println("count: " + this.getStepCount());
+        long startTime = System.nanoTime();
+        if (this.verbose) System.out.println("count: " + this.getStepCount());
 
         // 能力上昇
         if (this.getStepCount() != 0) {
@@ -58,62 +174,169 @@ public class ServiceSimulation extends Simulation {
         }
 
         // 各Actorのサービス交換可能なActorを更新
-        this.actors.parallelStream()
-                .forEach(Actor::updateMarketActors);
+        this.context.updateSpatialGrid();
+        this.context.updateMarketActors();
 
         // 価格均衡ループ、最大BALANCE_PRICE_MAV_COUNT回
-        IntStream.range(0, BALANCE_PRICE_MAX_COUNT)
+        this.frozenActors = null;
+        this.cycleReported = false;
+        this.cycleDetector.reset();
+        this.cycleDetector.update(this.store.copyPrices());
+        boolean[] oscillatingActors = new boolean[this.actors.size()];
+        IntStream.range(0, this.config.getBalancePriceMaxCount())
                 .anyMatch(i -> {
+                    // 今回の価格での購入先の順位を計算
+                    this.context.updateProviderRanking();
+
+                    int[] pricesBefore = this.store.copyPrices();
+
                     // 各Actor毎に価格ループ
-                    this.actors.parallelStream().forEach(actor -> {
+                    // 計算量は市場範囲のActor数の2乗程度なので、大きいものから割り当てて最後に残る処理を小さくする
+                    boolean[] computeActors = new boolean[this.actors.size()];
+                    long[] costs = new long[this.actors.size()];
+                    for (int actorId = 0; actorId < computeActors.length; actorId++) {
+                        computeActors[actorId] = this.frozenActors == null || !this.frozenActors[actorId];
+                        long marketActorCount = this.store.getMarketActorCount(actorId);
+                        if (computeActors[actorId]) costs[actorId] = marketActorCount * marketActorCount;
+                    }
+                    // 各Actorは現在の価格を読み、自分の次の回の価格だけを書き込むので同期は不要
+                    this.priceScheduler.run(IntStream.range(0, this.actors.size()).toArray(), costs, actorId -> {
+                        Actor actor = this.actors.get(actorId);
+                        if (!computeActors[actorId]) {
+                            actor.keepPrices();
+                            return;
+                        }
                         // 売上最大となる価格をシミュレーション
                         PriceSimulation priceSimulation = new PriceSimulation(actor);
                         priceSimulation.mainLoop();
-                        // 売上最大の価格を更新
-                        priceSimulation.getBestPrices().ifPresent(bestPrices -> this.bestPricesList.set(actor.getId(), bestPrices));
+                        // 価格が前の回と変化したか判定し、次の回の価格にする
+                        actor.setNextPrices(priceSimulation.getBestPrices().orElseThrow(IllegalStateException::new));
                     });
+                    // 全Actorの次の回の価格が揃ったので入れ替える
+                    this.store.swapPrices();
+                    // 価格が変わったのでキャッシュは無効
+                    this.context.clearProviderRanking();
 
-                    // 各Actorの価格を更新
-                    this.actors.parallelStream().forEach(actor -> {
-                        List<Integer> newPrices = this.bestPricesList.get(actor.getId());
-                        // 価格が前Stepと変化したか判定
-                        actor.checkChangePrices(newPrices);
-                        actor.setPrices(newPrices);
-                    });
+                    // 全価格が以前の回と一致したら、以降も同じ周期で振動する
+                    int[] pricesAfter = this.store.copyPrices();
+                    int period = this.cycleReported ? 0 : this.cycleDetector.update(pricesAfter);
+                    boolean[] oscillating = (period > 0) ? this.cycleDetector.findOscillatingActors(period) : null;
+                    if (oscillating != null) {
+                        IntStream.range(0, oscillating.length).forEach(actorId -> oscillatingActors[actorId] |= oscillating[actorId]);
+                        if (this.verbose) System.out.println(i + " : oscillation period " + period);
+                        pricesAfter = this.handleOscillation(oscillating, pricesBefore, pricesAfter);
+                    }
 
                     // 価格が変動している様子を表示
-                    this.actors.stream().filter(Actor::isChangePrice).forEach(actor -> {
-                        System.out.print(i + " : " + actor.getId() + " " + actor.getPrices().toString() + " ");
-                    });
-                    System.out.println();
+                    if (this.verbose) {
+                        this.actors.stream().filter(Actor::isChangePrice).forEach(actor -> {
+                            System.out.print(i + " : " + actor.getId() + " " + actor.getPrices().toString() + " ");
+                        });
+                        System.out.println();
+                    }
 
                     // 価格が均衡していく仮定を保存
-                    List<List<Integer>> pricesList = this.actors.stream()
-                            .map(actor -> {
-                                List<Integer> prices = new ArrayList<>();
-                                prices.addAll(actor.getPrices());
-                                return prices;
-                            })
-                            .collect(Collectors.toList());
-                    this.pricesList.add(pricesList);
-
-                    // すべての価格が変化していなければ終了
+                    try {
+                        this.logSink.appendPrices(this.store);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+
+                    // 振動を検出して終了する設定か、すべての価格が変化していなければ終了
+                    if (oscillating != null && this.config.getOscillationPolicy() == OscillationPolicy.STOP) return true;
                     return this.actors.parallelStream().allMatch(actor -> !actor.isChangePrice());
                 });
+        int[] oscillatingActorIds = IntStream.range(0, oscillatingActors.length).filter(actorId -> oscillatingActors[actorId]).toArray();
+        this.oscillatingActorIdsList.add(oscillatingActorIds);
+        if (this.verbose && oscillatingActorIds.length > 0) {
+            System.out.println("oscillating: " + oscillatingActorIds.length + " actors " + Arrays.toString(oscillatingActorIds));
+        }
 
         // サービス交換マッチング
         DeferredAcceptance.matching(this.actors);
 
-        // ログ生成
-        List<Actor> log = this.actors.stream()
-                .map(Actor::deepCopy)
-                .collect(Collectors.toList());
-        this.logList.add(log);
+        // ログを追記
+        try {
+            this.logSink.appendStep(this.actors);
+            // 書き込みは別スレッドで行うのでstepは待たない
+            int checkpointInterval = this.config.getCheckpointInterval();
+            if (checkpointInterval > 0 && (this.getStepCount() + 1) % checkpointInterval == 0) {
+                this.logSink.appendCheckpoint(checkpointFileName(this.saveActorFileName), this.getStepCount() + 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long stepTime = System.nanoTime() - startTime;
+        this.stepTimes.add(stepTime);
+        if (this.verbose) System.out.println("time: " + TimeUnit.NANOSECONDS.toMillis(stepTime) + " ms");
     }
 
 
+    /**
+     * 振動しているActorをoscillationPolicyに従って扱い、扱った後の全価格を返す
+     */
+    private int[] handleOscillation(boolean[] oscillating, int[] pricesBefore, int[] pricesAfter) {
+        OscillationPolicy policy = this.config.getOscillationPolicy();
+        if (policy != OscillationPolicy.FREEZE && policy != OscillationPolicy.DAMP) {
+            // 価格を変えないので同じ振動を毎回報告しないようにする
+            this.cycleReported = true;
+            return pricesAfter;
+        }
+
+        if (policy == OscillationPolicy.DAMP) {
+            int serviceCount = this.config.getServiceCount();
+            int minPrice = this.config.getMinPrice();
+            // 中間の価格は探索と同じ刻みの価格のうち安い方に揃える
+            int deltaPrice = (this.config.getPriceSearchMode() == PriceSearchMode.CONTINUOUS) ? 1 : this.config.getDeltaPrice();
+            for (int actorId = 0; actorId < oscillating.length; actorId++) {
+                if (!oscillating[actorId]) continue;
+                int offset = actorId * serviceCount;
+                for (int serviceId = 0; serviceId < serviceCount; serviceId++) {
+                    int sum = pricesBefore[offset + serviceId] + pricesAfter[offset + serviceId] - 2 * minPrice;
+                    this.store.setPrice(actorId, serviceId, minPrice + sum / (2 * deltaPrice) * deltaPrice);
+                }
+                // 価格変化フラグを回の前の価格と中間の価格で判定し直す
+                this.actors.get(actorId).checkChangePrices(Arrays.copyOfRange(pricesBefore, offset, offset + serviceCount));
+            }
+            this.context.clearProviderRanking();
+        }
+        // 振動しているActorは以降この価格のまま計算しない
+        if (this.frozenActors == null) this.frozenActors = new boolean[oscillating.length];
+        for (int actorId = 0; actorId < oscillating.length; actorId++) this.frozenActors[actorId] |= oscillating[actorId];
+
+        // 計算するActorか価格を変えたので、以前の回とは比較できない
+        int[] prices = this.store.copyPrices();
+        this.cycleDetector.reset();
+        this.cycleDetector.update(prices);
+        return prices;
+    }
+
     @Override
     protected boolean isSimulationFinished() {
-        return this.stepCount >= SIMULATION_COUNT;
+        return this.stepCount >= this.config.getSimulationCount();
+    }
+
+    public List<Long> getStepTimes() {
+        return this.stepTimes;
+    }
+
+    public List<int[]> getOscillatingActorIdsList() {
+        return this.oscillatingActorIdsList;
+    }
+
+    /**
+     * 売上最大の価格を計算した各スレッドの稼働率
+     */
+    public double[] getPriceWorkerUtilizations() {
+        return this.priceScheduler.getUtilizations();
+    }
+
+    public SimulationContext getContext() {
+        return this.context;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 }
@@ -8,7 +8,7 @@ public abstract class Simulation {
     protected int stepCount = 0;
 
     public void mainLoop() {
-        stepCount = 0;
+        stepCount = getFirstStepCount();
         init();
         while (!isSimulationFinished()) {
             step();
@@ -17,6 +17,13 @@ public abstract class Simulation {
         close();
     }
 
+    /**
+     * 最初に実行するStep、中断したシミュレーションを再開する場合は0以外
+     */
+    protected int getFirstStepCount() {
+        return 0;
+    }
+
     protected abstract void init();
 
     protected abstract void close();
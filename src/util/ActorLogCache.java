@@ -0,0 +1,73 @@
+package util;
+
+import model.Actor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * バイナリ形式のActorのログを、Step毎に必要になった時に復元するリスト
+ * 最近参照したStepだけを復元済みのまま保持する(LRU)ので、メモリ使用量はログの長さによらず一定
+ * タイムラインのスクロールのように近いStepを行き来する表示用
+ */
+public final class ActorLogCache extends AbstractList<List<Actor>> implements Closeable {
+
+    // 復元済みのまま保持するStep数
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private final ActorLogReader reader;
+    private final Map<Integer, List<Actor>> cache;
+
+    public ActorLogCache(String fileName) throws IOException {
+        this(fileName, DEFAULT_CAPACITY);
+    }
+
+    public ActorLogCache(String fileName, int capacity) throws IOException {
+        this.reader = new ActorLogReader(fileName);
+        this.cache = new LinkedHashMap<Integer, List<Actor>>(capacity + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Actor>> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    public SimulationConfig getConfig() {
+        return this.reader.getConfig();
+    }
+
+    /**
+     * stepIndex番目のStepのActor
+     * 保持していなければファイルから復元する
+     */
+    @Override
+    public synchronized List<Actor> get(int stepIndex) {
+        if (stepIndex < 0 || stepIndex >= this.size()) throw new IndexOutOfBoundsException(String.valueOf(stepIndex));
+        List<Actor> actors = this.cache.get(stepIndex);
+        if (actors == null) {
+            try {
+                actors = this.reader.readStep(stepIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.cache.put(stepIndex, actors);
+        }
+        return actors;
+    }
+
+    @Override
+    public int size() {
+        return this.reader.getStepCount();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.cache.clear();
+        this.reader.close();
+    }
+}
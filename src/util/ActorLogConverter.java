@@ -0,0 +1,103 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+import util.legacy.LegacyActor;
+import util.legacy.LegacyActorLog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static util.Const.DIM;
+
+/**
+ * Javaのシリアライズで保存したActorのログ(ストア導入前のmodel.Actor)をバイナリ形式(ActorLogFormat)に変換する
+ * <p>
+ * 例: java -cp service-simulation.jar util.ActorLogConverter result.dat result.sslg
+ */
+public final class ActorLogConverter {
+
+    private ActorLogConverter() {
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        if (args.length != 2) {
+            System.err.println("usage: ActorLogConverter <serialized log> <output>");
+            System.exit(1);
+            return;
+        }
+        int stepCount = convert(args[0], args[1]);
+        System.out.println("converted " + stepCount + " steps: " + args[0] + " -> " + args[1]);
+    }
+
+    /**
+     * シリアライズされたログを変換
+     *
+     * @return 変換したStep数
+     */
+    public static int convert(String serializedFileName, String outputFileName) throws IOException, ClassNotFoundException {
+        List<List<Actor>> logList = read(serializedFileName);
+        try (ActorLogWriter writer = new ActorLogWriter(outputFileName, logList.get(0).get(0).getStore())) {
+            for (List<Actor> log : logList) {
+                writer.writeStep(log);
+            }
+        }
+        return logList.size();
+    }
+
+    /**
+     * シリアライズされたログを読み込み、Step毎のストアに復元する
+     * 当時は設定がConstの定数だったため、Actorの数以外はSimulationConfig.DEFAULTとし、サービスとCapabilityの数が合わなければ例外
+     */
+    static List<List<Actor>> read(String serializedFileName) throws IOException, ClassNotFoundException {
+        List<List<LegacyActor>> legacyLogList = LegacyActorLog.read(serializedFileName);
+        if (legacyLogList.isEmpty() || legacyLogList.get(0).isEmpty()) throw new IOException("empty log: " + serializedFileName);
+
+        SimulationConfig config = SimulationConfig.DEFAULT.toBuilder()
+                .actorCount(legacyLogList.get(0).size())
+                .simulationCount(legacyLogList.size())
+                .build();
+        List<List<Actor>> logList = new ArrayList<>(legacyLogList.size());
+        for (List<LegacyActor> legacyActors : legacyLogList) {
+            logList.add(toActors(legacyActors, config, serializedFileName));
+        }
+        return logList;
+    }
+
+    /**
+     * 1Step分の当時のActorを新しいストアに復元
+     */
+    private static List<Actor> toActors(List<LegacyActor> legacyActors, SimulationConfig config, String fileName) throws IOException {
+        if (legacyActors.size() != config.getActorCount()) throw new IOException("actor count changed between steps: " + fileName);
+        ActorStore store = new ActorStore(config);
+        int[][] marketActorIdsList = new int[legacyActors.size()][];
+        List<Actor> actors = new ArrayList<>(legacyActors.size());
+        for (int actorId = 0; actorId < legacyActors.size(); actorId++) {
+            LegacyActor legacyActor = legacyActors.get(actorId);
+            if (legacyActor.getId() != actorId) throw new IOException("actor " + legacyActor.getId() + " at index " + actorId + ": " + fileName);
+            if (legacyActor.getCapabilities().size() != config.getCapabilityCount() || legacyActor.getPrices().size() != config.getServiceCount()) {
+                throw new IOException("unsupported capability or service count: " + fileName);
+            }
+
+            for (int dim = 0; dim < DIM; dim++) store.setPos(actorId, dim, legacyActor.getPos()[dim]);
+            for (int capabilityId = 0; capabilityId < config.getCapabilityCount(); capabilityId++) {
+                store.setCapability(actorId, capabilityId, legacyActor.getCapabilities().get(capabilityId));
+            }
+            for (int serviceId = 0; serviceId < config.getServiceCount(); serviceId++) {
+                List<Double> feature = legacyActor.getFeatures().get(serviceId);
+                if (feature.size() != store.getServiceCapabilityIds(serviceId).length) {
+                    throw new IOException("unsupported feature length of service " + serviceId + ": " + fileName);
+                }
+                for (int dim = 0; dim < feature.size(); dim++) store.setFeature(actorId, serviceId, dim, feature.get(dim));
+                store.setPrice(actorId, serviceId, legacyActor.getPrices().get(serviceId));
+                store.setProviderId(actorId, serviceId, legacyActor.getProviderActorIdList().get(serviceId));
+                store.setMatch(actorId, serviceId, legacyActor.getIsMatches().get(serviceId));
+            }
+            marketActorIdsList[actorId] = legacyActor.getMarketActorIdList().stream().mapToInt(Integer::intValue).toArray();
+            actors.add(Actor.restore(store, actorId, legacyActor.getConsumerActorIdsList(), legacyActor.isChangePrice()));
+        }
+        store.setMarketActorIds(marketActorIdsList);
+        return actors;
+    }
+}
@@ -0,0 +1,135 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static util.Const.DIM;
+
+/**
+ * Actorのログのバイナリ形式(列指向)
+ * 数値はすべてリトルエンディアン
+ * <pre>
+ * ヘッダ(固定長HEADER_LENGTHバイト)
+ *   byte[4] MAGIC, int version, int actorCount, int serviceCount, int capabilityCount, int featureStride,
+ *   int dim, int configLength, 残りは0
+ * 設定 byte[configLength] (SimulationConfig.toPropertiesのUTF-8テキスト)
+ * 評価ベクトル double[actorCount * featureStride] (Stepによらず不変)
+ * Stepのブロック × Step数
+ *   int STEP_MAGIC, int kind, int stepIndex, long payloadLength, payload
+ *   payload(KIND_FULL):
+ *     int[actorCount * dim] 座標
+ *     double[actorCount * capabilityCount] Capability
+ *     int[actorCount * serviceCount] 価格
+ *     int[actorCount * serviceCount] 購入先ActorのID
+ *     byte[actorCount * serviceCount] マッチング済みか
+ *     byte[actorCount] 価格が変化したか
+ *     int[actorCount + 1] 市場範囲のActorの先頭位置、int[] 市場範囲のActorのID
+ *     int[actorCount * serviceCount + 1] 売却先の先頭位置、int[] 売却先ActorのID
+ *   payload(KIND_DELTA、直前のStepとの差分、version 2以降):
+ *     int n, (int index, int value)[n] 変化した座標
+ *     int n, (int index, double value)[n] 変化したCapability
+ *     int n, (int index, int value)[n] 変化した価格
+ *     int n, (int index, int value)[n] 変化した購入先ActorのID
+ *     int n, int[n] マッチング済みかが反転した位置
+ *     int n, int[n] 価格が変化したかが反転した位置
+ *     int n, (int actorId, int length, int[length])[n] 変化した市場範囲のActor
+ *     int n, (int index, int length, int[length])[n] 変化した売却先
+ * Stepの索引(書き込みを正常に終えた場合のみ)
+ *   long[stepCount] 各ブロックの先頭位置, int stepCount, byte[4] INDEX_MAGIC
+ * </pre>
+ * 索引がない(書き込み途中で終了した)ファイルは先頭からブロックを辿って読む
+ * 最初のStepとlogKeyframeInterval毎のStepはKIND_FULL、それ以外はKIND_DELTAで、任意のStepは直前のKIND_FULLから差分を適用して復元する
+ */
+public final class ActorLogFormat {
+
+    public static final int VERSION = 2;
+    public static final int HEADER_LENGTH = 64;
+    public static final int BLOCK_HEADER_LENGTH = 20;
+    public static final int FOOTER_LENGTH = 8;
+    public static final int KIND_FULL = 0;
+    public static final int KIND_DELTA = 1;
+
+    static final byte[] MAGIC = {'S', 'S', 'L', 'G'};
+    static final byte[] INDEX_MAGIC = {'S', 'S', 'L', 'I'};
+    static final int STEP_MAGIC = 0x50455453;
+
+    private ActorLogFormat() {
+    }
+
+    /**
+     * ファイルがこの形式で書かれているか(先頭がMAGICか)
+     */
+    public static boolean isActorLog(String fileName) {
+        try (InputStream inputStream = Files.newInputStream(Paths.get(fileName))) {
+            byte[] head = new byte[MAGIC.length];
+            return inputStream.read(head) == head.length && Arrays.equals(head, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static byte[] encodeConfig(SimulationConfig config) {
+        StringWriter writer = new StringWriter();
+        try {
+            config.toProperties().store(writer, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // 先頭の日時のコメントを除き、同じ設定なら同じバイト列にする
+        String text = writer.toString();
+        if (text.startsWith("#")) text = text.substring(text.indexOf('\n') + 1);
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static SimulationConfig decodeConfig(byte[] bytes) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+        return SimulationConfig.fromProperties(properties);
+    }
+
+    /**
+     * channelのpositionからbufferが一杯になるまで読み込む
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("unexpected end of file at " + position);
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    static int[] getInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    static double[] getDoubles(ByteBuffer buffer, int length) {
+        double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return values;
+    }
+
+    static byte[] getBytes(ByteBuffer buffer, int length) {
+        byte[] values = new byte[length];
+        buffer.get(values);
+        return values;
+    }
+}
@@ -0,0 +1,215 @@
+package util;
+
+import model.Actor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static util.Const.DIM;
+
+/**
+ * バイナリ形式(ActorLogFormat)のActorのログを読み込む
+ * 索引から任意のStepのブロックだけをメモリマップして復元するため、ファイルの大きさによらずすぐに開ける
+ */
+public final class ActorLogReader implements Closeable {
+
+    private final FileChannel channel;
+    private final SimulationConfig config;
+    private final int actorCount;
+    private final int serviceCount;
+    private final int capabilityCount;
+    private final int featureStride;
+    // 評価ベクトル(全Step共通)
+    private final double[] features;
+    // 各Stepのブロックの先頭位置
+    private final long[] stepOffsets;
+    // 最初のStepのブロックの先頭位置
+    private final long dataStart;
+    // 各Stepのブロックの種類、未読なら-1
+    private final byte[] kinds;
+    // 前回復元したStep
+    private ActorLogStep lastStep;
+    private int lastStepIndex;
+
+    public ActorLogReader(String fileName) throws IOException {
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ActorLogFormat.allocate(ActorLogFormat.HEADER_LENGTH);
+            ActorLogFormat.readFully(this.channel, header, 0);
+            if (!Arrays.equals(ActorLogFormat.getBytes(header, ActorLogFormat.MAGIC.length), ActorLogFormat.MAGIC)) {
+                throw new IOException("not an actor log: " + fileName);
+            }
+            int version = header.getInt();
+            if (version < 1 || version > ActorLogFormat.VERSION) throw new IOException("unsupported version: " + version);
+            this.actorCount = header.getInt();
+            this.serviceCount = header.getInt();
+            this.capabilityCount = header.getInt();
+            this.featureStride = header.getInt();
+            int dim = header.getInt();
+            if (dim != DIM) throw new IOException("unsupported dim: " + dim);
+            int configLength = header.getInt();
+
+            ByteBuffer configBuffer = ActorLogFormat.allocate(configLength);
+            ActorLogFormat.readFully(this.channel, configBuffer, ActorLogFormat.HEADER_LENGTH);
+            this.config = ActorLogFormat.decodeConfig(configBuffer.array());
+
+            long featuresOffset = ActorLogFormat.HEADER_LENGTH + configLength;
+            ByteBuffer featureBuffer = ActorLogFormat.allocate(this.actorCount * this.featureStride * Double.BYTES);
+            ActorLogFormat.readFully(this.channel, featureBuffer, featuresOffset);
+            this.features = ActorLogFormat.getDoubles(featureBuffer, this.actorCount * this.featureStride);
+
+            this.dataStart = featuresOffset + (long) this.actorCount * this.featureStride * Double.BYTES;
+            this.stepOffsets = this.readStepOffsets(this.dataStart);
+            this.kinds = new byte[this.stepOffsets.length];
+            Arrays.fill(this.kinds, (byte) -1);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    public SimulationConfig getConfig() {
+        return this.config;
+    }
+
+    public int getStepCount() {
+        return this.stepOffsets.length;
+    }
+
+    /**
+     * stepIndex番目のStepのActorを復元
+     * Step毎に別のストアを持つ
+     */
+    public List<Actor> readStep(int stepIndex) throws IOException {
+        return this.readLogStep(stepIndex).toActors(this.config, this.features);
+    }
+
+    /**
+     * stepIndex番目のStepのブロックの先頭位置
+     */
+    long getStepOffset(int stepIndex) {
+        return this.stepOffsets[stepIndex];
+    }
+
+    /**
+     * 最初のstepCount Step分のブロックの末尾の位置
+     */
+    synchronized long getStepsEnd(int stepCount) throws IOException {
+        if (stepCount == 0) return this.dataStart;
+        long offset = this.stepOffsets[stepCount - 1];
+        return offset + ActorLogFormat.BLOCK_HEADER_LENGTH + this.mapPayload(stepCount - 1).capacity();
+    }
+
+    /**
+     * 全Stepを復元
+     */
+    public List<List<Actor>> readAll() throws IOException {
+        List<List<Actor>> logList = new ArrayList<>(this.getStepCount());
+        for (int stepIndex = 0; stepIndex < this.getStepCount(); stepIndex++) {
+            logList.add(this.readStep(stepIndex));
+        }
+        return logList;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * stepIndex番目のStepの状態を復元
+     * 直前のKIND_FULLのブロック(前回復元したStepの方が近ければそこ)から差分を順に適用する
+     */
+    synchronized ActorLogStep readLogStep(int stepIndex) throws IOException {
+        if (this.lastStep != null && this.lastStepIndex == stepIndex) return this.lastStep;
+        boolean isContinued = this.lastStep != null && this.lastStepIndex < stepIndex;
+        int start = stepIndex;
+        while (this.readKind(start) != ActorLogFormat.KIND_FULL && !(isContinued && this.lastStepIndex == start - 1)) {
+            if (--start < 0) throw new IOException("no keyframe before step " + stepIndex);
+        }
+
+        ActorLogStep step = this.readKind(start) == ActorLogFormat.KIND_FULL
+                ? ActorLogStep.decodeFull(this.mapPayload(start), this.actorCount, this.serviceCount, this.capabilityCount)
+                : this.lastStep.applyDelta(this.mapPayload(start));
+        for (int i = start + 1; i <= stepIndex; i++) {
+            step = step.applyDelta(this.mapPayload(i));
+        }
+        this.lastStep = step;
+        this.lastStepIndex = stepIndex;
+        return step;
+    }
+
+    /**
+     * stepIndex番目のブロックの種類(KIND_FULLかKIND_DELTA)
+     */
+    private int readKind(int stepIndex) throws IOException {
+        if (this.kinds[stepIndex] < 0) this.mapPayload(stepIndex);
+        return this.kinds[stepIndex];
+    }
+
+    /**
+     * stepIndex番目のブロックのpayloadをメモリマップする
+     */
+    private ByteBuffer mapPayload(int stepIndex) throws IOException {
+        long offset = this.stepOffsets[stepIndex];
+        ByteBuffer blockHeader = ActorLogFormat.allocate(ActorLogFormat.BLOCK_HEADER_LENGTH);
+        ActorLogFormat.readFully(this.channel, blockHeader, offset);
+        int magic = blockHeader.getInt();
+        int kind = blockHeader.getInt();
+        blockHeader.getInt();
+        long payloadLength = blockHeader.getLong();
+        if (magic != ActorLogFormat.STEP_MAGIC || (kind != ActorLogFormat.KIND_FULL && kind != ActorLogFormat.KIND_DELTA)) {
+            throw new IOException("broken step block at " + offset);
+        }
+        if (payloadLength > Integer.MAX_VALUE) throw new IOException("step block too large: " + payloadLength);
+        this.kinds[stepIndex] = (byte) kind;
+
+        return this.channel
+                .map(FileChannel.MapMode.READ_ONLY, offset + ActorLogFormat.BLOCK_HEADER_LENGTH, payloadLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 末尾の索引から各Stepのブロックの先頭位置を読み込む
+     * 索引がなければdataStartからブロックを辿り、途中で切れているブロックは除く
+     */
+    private long[] readStepOffsets(long dataStart) throws IOException {
+        long size = this.channel.size();
+        if (size >= dataStart + ActorLogFormat.FOOTER_LENGTH) {
+            ByteBuffer footer = ActorLogFormat.allocate(ActorLogFormat.FOOTER_LENGTH);
+            ActorLogFormat.readFully(this.channel, footer, size - ActorLogFormat.FOOTER_LENGTH);
+            int stepCount = footer.getInt();
+            if (Arrays.equals(ActorLogFormat.getBytes(footer, ActorLogFormat.INDEX_MAGIC.length), ActorLogFormat.INDEX_MAGIC)) {
+                ByteBuffer index = ActorLogFormat.allocate(stepCount * Long.BYTES);
+                ActorLogFormat.readFully(this.channel, index, size - ActorLogFormat.FOOTER_LENGTH - (long) stepCount * Long.BYTES);
+                long[] offsets = new long[stepCount];
+                index.asLongBuffer().get(offsets);
+                return offsets;
+            }
+        }
+
+        List<Long> offsets = new ArrayList<>();
+        long position = dataStart;
+        ByteBuffer blockHeader = ActorLogFormat.allocate(ActorLogFormat.BLOCK_HEADER_LENGTH);
+        while (position + ActorLogFormat.BLOCK_HEADER_LENGTH <= size) {
+            blockHeader.clear();
+            ActorLogFormat.readFully(this.channel, blockHeader, position);
+            if (blockHeader.getInt() != ActorLogFormat.STEP_MAGIC) break;
+            blockHeader.getInt();
+            blockHeader.getInt();
+            long end = position + ActorLogFormat.BLOCK_HEADER_LENGTH + blockHeader.getLong();
+            if (end > size) break;
+            offsets.add(position);
+            position = end;
+        }
+        return offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+}
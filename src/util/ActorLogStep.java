@@ -0,0 +1,329 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static util.Const.DIM;
+
+/**
+ * ログの1Step分のActorの状態(評価ベクトルを除く)
+ * ActorLogFormatのブロックとの変換と、前のStepとの差分(KIND_DELTA)の生成、適用を行う
+ */
+final class ActorLogStep {
+
+    private final int actorCount;
+    private final int serviceCount;
+    private final int capabilityCount;
+
+    // [actorId * DIM + dim]
+    final int[] positions;
+    // [actorId * capabilityCount + capabilityId]
+    final double[] capabilities;
+    // [actorId * serviceCount + serviceId]
+    final int[] prices;
+    final int[] providerIds;
+    final boolean[] matches;
+    // [actorId]
+    final byte[] changePrices;
+    final int[][] marketActorIds;
+    // [actorId * serviceCount + serviceId]
+    final int[][] consumerIds;
+
+    private ActorLogStep(int actorCount, int serviceCount, int capabilityCount) {
+        this.actorCount = actorCount;
+        this.serviceCount = serviceCount;
+        this.capabilityCount = capabilityCount;
+        this.positions = new int[actorCount * DIM];
+        this.capabilities = new double[actorCount * capabilityCount];
+        this.prices = new int[actorCount * serviceCount];
+        this.providerIds = new int[actorCount * serviceCount];
+        this.matches = new boolean[actorCount * serviceCount];
+        this.changePrices = new byte[actorCount];
+        this.marketActorIds = new int[actorCount][];
+        this.consumerIds = new int[actorCount * serviceCount][];
+    }
+
+    /**
+     * 現在の全Actorの状態を複製
+     */
+    static ActorLogStep capture(List<Actor> actors) {
+        ActorStore store = actors.get(0).getStore();
+        SimulationConfig config = store.getConfig();
+        ActorLogStep step = new ActorLogStep(actors.size(), config.getServiceCount(), config.getCapabilityCount());
+        for (Actor actor : actors) {
+            int actorId = actor.getId();
+            for (int dim = 0; dim < DIM; dim++) step.positions[actorId * DIM + dim] = store.getPos(actorId, dim);
+            for (int i = 0; i < step.capabilityCount; i++) step.capabilities[actorId * step.capabilityCount + i] = store.getCapability(actorId, i);
+            for (int serviceId = 0; serviceId < step.serviceCount; serviceId++) {
+                int index = actorId * step.serviceCount + serviceId;
+                step.prices[index] = store.getPrice(actorId, serviceId);
+                step.providerIds[index] = store.getProviderId(actorId, serviceId);
+                step.matches[index] = store.isMatch(actorId, serviceId);
+                step.consumerIds[index] = actor.getConsumerActorIdList(serviceId).stream().mapToInt(Integer::intValue).toArray();
+            }
+            step.changePrices[actorId] = (byte) (actor.isChangePrice() ? 1 : 0);
+            int[] marketActorIds = new int[actor.getMarketActorCount()];
+            for (int i = 0; i < marketActorIds.length; i++) marketActorIds[i] = actor.getMarketActorId(i);
+            step.marketActorIds[actorId] = marketActorIds;
+        }
+        return step;
+    }
+
+    /**
+     * KIND_FULLのpayloadから復元
+     */
+    static ActorLogStep decodeFull(ByteBuffer payload, int actorCount, int serviceCount, int capabilityCount) {
+        ActorLogStep step = new ActorLogStep(actorCount, serviceCount, capabilityCount);
+        payload.asIntBuffer().get(step.positions);
+        payload.position(payload.position() + step.positions.length * Integer.BYTES);
+        payload.asDoubleBuffer().get(step.capabilities);
+        payload.position(payload.position() + step.capabilities.length * Double.BYTES);
+        payload.asIntBuffer().get(step.prices);
+        payload.position(payload.position() + step.prices.length * Integer.BYTES);
+        payload.asIntBuffer().get(step.providerIds);
+        payload.position(payload.position() + step.providerIds.length * Integer.BYTES);
+        for (int i = 0; i < step.matches.length; i++) step.matches[i] = payload.get() != 0;
+        payload.get(step.changePrices);
+        fromCsr(ActorLogFormat.getInts(payload, actorCount + 1), payload, step.marketActorIds);
+        fromCsr(ActorLogFormat.getInts(payload, actorCount * serviceCount + 1), payload, step.consumerIds);
+        return step;
+    }
+
+    /**
+     * KIND_FULLのpayloadを書き込む
+     */
+    void encodeFull(LogOutput writer) throws IOException {
+        for (int value : this.positions) writer.putInt(value);
+        for (double value : this.capabilities) writer.putDouble(value);
+        for (int value : this.prices) writer.putInt(value);
+        for (int value : this.providerIds) writer.putInt(value);
+        for (boolean value : this.matches) writer.putByte((byte) (value ? 1 : 0));
+        for (byte value : this.changePrices) writer.putByte(value);
+        toCsr(writer, this.marketActorIds);
+        toCsr(writer, this.consumerIds);
+    }
+
+    /**
+     * previousからこのStepへの差分をKIND_DELTAのpayloadとして書き込む
+     * 変化した要素だけを新しい値で記録するので、復元は書き込んだ値と完全に一致する
+     */
+    void encodeDelta(LogOutput writer, ActorLogStep previous) throws IOException {
+        // 座標
+        writer.putInt(countChanged(previous.positions, this.positions));
+        for (int i = 0; i < this.positions.length; i++) {
+            if (previous.positions[i] != this.positions[i]) {
+                writer.putInt(i);
+                writer.putInt(this.positions[i]);
+            }
+        }
+        // Capability
+        int changedCapabilityCount = 0;
+        for (int i = 0; i < this.capabilities.length; i++) {
+            if (isChanged(previous.capabilities[i], this.capabilities[i])) changedCapabilityCount++;
+        }
+        writer.putInt(changedCapabilityCount);
+        for (int i = 0; i < this.capabilities.length; i++) {
+            if (isChanged(previous.capabilities[i], this.capabilities[i])) {
+                writer.putInt(i);
+                writer.putDouble(this.capabilities[i]);
+            }
+        }
+        // 価格、購入先
+        for (int[][] arrays : new int[][][]{{previous.prices, this.prices}, {previous.providerIds, this.providerIds}}) {
+            writer.putInt(countChanged(arrays[0], arrays[1]));
+            for (int i = 0; i < arrays[1].length; i++) {
+                if (arrays[0][i] != arrays[1][i]) {
+                    writer.putInt(i);
+                    writer.putInt(arrays[1][i]);
+                }
+            }
+        }
+        // マッチング済みか、価格が変化したか(反転した位置)
+        int changedMatchCount = 0;
+        for (int i = 0; i < this.matches.length; i++) {
+            if (previous.matches[i] != this.matches[i]) changedMatchCount++;
+        }
+        writer.putInt(changedMatchCount);
+        for (int i = 0; i < this.matches.length; i++) {
+            if (previous.matches[i] != this.matches[i]) writer.putInt(i);
+        }
+        int changedChangePriceCount = 0;
+        for (int i = 0; i < this.changePrices.length; i++) {
+            if (previous.changePrices[i] != this.changePrices[i]) changedChangePriceCount++;
+        }
+        writer.putInt(changedChangePriceCount);
+        for (int i = 0; i < this.changePrices.length; i++) {
+            if (previous.changePrices[i] != this.changePrices[i]) writer.putInt(i);
+        }
+        // 市場範囲のActor、売却先(変化したリストを丸ごと)
+        for (int[][][] lists : new int[][][][]{{previous.marketActorIds, this.marketActorIds}, {previous.consumerIds, this.consumerIds}}) {
+            int changedCount = 0;
+            for (int i = 0; i < lists[1].length; i++) {
+                if (!Arrays.equals(lists[0][i], lists[1][i])) changedCount++;
+            }
+            writer.putInt(changedCount);
+            for (int i = 0; i < lists[1].length; i++) {
+                if (!Arrays.equals(lists[0][i], lists[1][i])) {
+                    writer.putInt(i);
+                    writer.putInt(lists[1][i].length);
+                    for (int value : lists[1][i]) writer.putInt(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * このStepにKIND_DELTAのpayloadを適用した次のStep
+     */
+    ActorLogStep applyDelta(ByteBuffer payload) {
+        ActorLogStep step = this.copy();
+        for (int n = payload.getInt(); n > 0; n--) {
+            int i = payload.getInt();
+            step.positions[i] = payload.getInt();
+        }
+        for (int n = payload.getInt(); n > 0; n--) {
+            int i = payload.getInt();
+            step.capabilities[i] = payload.getDouble();
+        }
+        for (int[] values : new int[][]{step.prices, step.providerIds}) {
+            for (int n = payload.getInt(); n > 0; n--) {
+                int i = payload.getInt();
+                values[i] = payload.getInt();
+            }
+        }
+        for (int n = payload.getInt(); n > 0; n--) {
+            int i = payload.getInt();
+            step.matches[i] = !step.matches[i];
+        }
+        for (int n = payload.getInt(); n > 0; n--) {
+            int i = payload.getInt();
+            step.changePrices[i] = (byte) (step.changePrices[i] ^ 1);
+        }
+        for (int[][] lists : new int[][][]{step.marketActorIds, step.consumerIds}) {
+            for (int n = payload.getInt(); n > 0; n--) {
+                int i = payload.getInt();
+                lists[i] = ActorLogFormat.getInts(payload, payload.getInt());
+            }
+        }
+        return step;
+    }
+
+    /**
+     * このStepの配列をそのまま参照するストア上のActorとして復元
+     * 売却先は読み取り専用のビューで、要素は参照された時に初めてボックス化する
+     *
+     * @param config   設定
+     * @param features 評価ベクトル [actorId * featureStride + ...]、全Stepのストアで共有する
+     */
+    List<Actor> toActors(SimulationConfig config, double[] features) {
+        int[] marketOffsets = new int[this.actorCount + 1];
+        for (int actorId = 0; actorId < this.actorCount; actorId++) {
+            marketOffsets[actorId + 1] = marketOffsets[actorId] + this.marketActorIds[actorId].length;
+        }
+        int[] marketActorIds = new int[marketOffsets[this.actorCount]];
+        for (int actorId = 0; actorId < this.actorCount; actorId++) {
+            System.arraycopy(this.marketActorIds[actorId], 0, marketActorIds, marketOffsets[actorId], this.marketActorIds[actorId].length);
+        }
+        ActorStore store = ActorStore.wrap(config, this.positions, this.capabilities, features,
+                this.prices, this.providerIds, this.matches, marketOffsets, marketActorIds);
+
+        List<Actor> actors = new ArrayList<>(this.actorCount);
+        for (int actorId = 0; actorId < this.actorCount; actorId++) {
+            int consumerStart = actorId * this.serviceCount;
+            List<List<Integer>> consumerActorIdsList = new AbstractList<List<Integer>>() {
+                @Override
+                public List<Integer> get(int serviceId) {
+                    return new IntListView(ActorLogStep.this.consumerIds[consumerStart + serviceId]);
+                }
+
+                @Override
+                public int size() {
+                    return ActorLogStep.this.serviceCount;
+                }
+            };
+            actors.add(Actor.restore(store, actorId, consumerActorIdsList, this.changePrices[actorId] != 0));
+        }
+        return actors;
+    }
+
+    private ActorLogStep copy() {
+        ActorLogStep step = new ActorLogStep(this.actorCount, this.serviceCount, this.capabilityCount);
+        System.arraycopy(this.positions, 0, step.positions, 0, this.positions.length);
+        System.arraycopy(this.capabilities, 0, step.capabilities, 0, this.capabilities.length);
+        System.arraycopy(this.prices, 0, step.prices, 0, this.prices.length);
+        System.arraycopy(this.providerIds, 0, step.providerIds, 0, this.providerIds.length);
+        System.arraycopy(this.matches, 0, step.matches, 0, this.matches.length);
+        System.arraycopy(this.changePrices, 0, step.changePrices, 0, this.changePrices.length);
+        // リストは差分で丸ごと置き換えるので共有してよい
+        System.arraycopy(this.marketActorIds, 0, step.marketActorIds, 0, this.marketActorIds.length);
+        System.arraycopy(this.consumerIds, 0, step.consumerIds, 0, this.consumerIds.length);
+        return step;
+    }
+
+    private static int countChanged(int[] previous, int[] current) {
+        int changedCount = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (previous[i] != current[i]) changedCount++;
+        }
+        return changedCount;
+    }
+
+    /**
+     * ビット単位で異なるか
+     */
+    private static boolean isChanged(double previous, double current) {
+        return Double.doubleToRawLongBits(previous) != Double.doubleToRawLongBits(current);
+    }
+
+    private static void toCsr(LogOutput writer, int[][] lists) throws IOException {
+        int offset = 0;
+        writer.putInt(offset);
+        for (int[] list : lists) {
+            offset += list.length;
+            writer.putInt(offset);
+        }
+        for (int[] list : lists) {
+            for (int value : list) writer.putInt(value);
+        }
+    }
+
+    private static void fromCsr(int[] offsets, ByteBuffer payload, int[][] lists) {
+        int[] values = ActorLogFormat.getInts(payload, offsets[offsets.length - 1]);
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = Arrays.copyOfRange(values, offsets[i], offsets[i + 1]);
+        }
+    }
+
+    /**
+     * int配列の読み取り専用ビュー(Actorと一緒に保存できる)
+     */
+    private static final class IntListView extends AbstractList<Integer> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = -2093281432218440625L;
+
+        private final int[] values;
+
+        private IntListView(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return this.values[index];
+        }
+
+        @Override
+        public int size() {
+            return this.values.length;
+        }
+    }
+}
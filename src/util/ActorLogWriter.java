@@ -0,0 +1,152 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static util.Const.DIM;
+
+/**
+ * Actorのログをバイナリ形式(ActorLogFormat)で書き込む
+ * Step毎にwriteStepで追記し、closeで索引を書き込む
+ */
+public final class ActorLogWriter implements Closeable {
+
+    private final LogOutput output;
+    // 各Stepのブロックの先頭位置
+    private final List<Long> stepOffsets;
+    // 全状態を書き込むStepの間隔
+    private final int keyframeInterval;
+    // 直前に書き込んだStep
+    private ActorLogStep previous;
+
+    /**
+     * ファイルを作成し、ヘッダと評価ベクトルを書き込む
+     *
+     * @param fileName ファイル名
+     * @param store    設定と評価ベクトルを書き込むストア
+     */
+    public ActorLogWriter(String fileName, ActorStore store) throws IOException {
+        SimulationConfig config = store.getConfig();
+        this.output = new LogOutput(fileName);
+        this.stepOffsets = new ArrayList<>();
+        this.keyframeInterval = config.getLogKeyframeInterval();
+        int actorCount = store.getActorCount();
+        int serviceCount = config.getServiceCount();
+
+        byte[] configBytes = ActorLogFormat.encodeConfig(config);
+        this.output.putBytes(ActorLogFormat.MAGIC);
+        this.output.putInt(ActorLogFormat.VERSION);
+        this.output.putInt(actorCount);
+        this.output.putInt(serviceCount);
+        this.output.putInt(config.getCapabilityCount());
+        this.output.putInt(store.getFeatureStride());
+        this.output.putInt(DIM);
+        this.output.putInt(configBytes.length);
+        while (this.output.getPosition() < ActorLogFormat.HEADER_LENGTH) this.output.putByte((byte) 0);
+        this.output.putBytes(configBytes);
+
+        // 評価ベクトルはStepによらず不変なので1度だけ書き込む
+        for (int actorId = 0; actorId < actorCount; actorId++) {
+            for (int serviceId = 0; serviceId < serviceCount; serviceId++) {
+                int length = store.getServiceCapabilityIds(serviceId).length;
+                for (int dim = 0; dim < length; dim++) {
+                    this.output.putDouble(store.getFeature(actorId, serviceId, dim));
+                }
+            }
+        }
+    }
+
+    /**
+     * 既存のログの先頭stepCount Step分を残し、続きを追記する(中断したシミュレーションの再開用)
+     */
+    private ActorLogWriter(String fileName, int stepCount) throws IOException {
+        try (ActorLogReader reader = new ActorLogReader(fileName)) {
+            if (reader.getStepCount() < stepCount) {
+                throw new IOException("log has only " + reader.getStepCount() + " steps, needs " + stepCount + ": " + fileName);
+            }
+            this.keyframeInterval = reader.getConfig().getLogKeyframeInterval();
+            this.stepOffsets = new ArrayList<>(stepCount);
+            for (int stepIndex = 0; stepIndex < stepCount; stepIndex++) this.stepOffsets.add(reader.getStepOffset(stepIndex));
+            this.previous = stepCount > 0 ? reader.readLogStep(stepCount - 1) : null;
+            this.output = new LogOutput(FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE), reader.getStepsEnd(stepCount));
+        }
+    }
+
+    /**
+     * 既存のログの先頭stepCount Step分を残して追記するWriterを開く
+     * 書き込み途中で終了したファイルでもよく、stepCount以降のStepと索引は削除する
+     */
+    public static ActorLogWriter openAppend(String fileName, int stepCount) throws IOException {
+        return new ActorLogWriter(fileName, stepCount);
+    }
+
+    /**
+     * 1Step分のActorの状態を追記
+     *
+     * @param actors 全Actor(ID順)
+     */
+    public void writeStep(List<Actor> actors) throws IOException {
+        this.writeStep(ActorLogStep.capture(actors));
+    }
+
+    /**
+     * 1Step分の状態を追記
+     * keyframeInterval毎のStepは全状態、それ以外は直前のStepとの差分を書き込む
+     */
+    void writeStep(ActorLogStep step) throws IOException {
+        int stepIndex = this.stepOffsets.size();
+        boolean isKeyframe = this.previous == null || stepIndex % this.keyframeInterval == 0;
+        long blockStart = this.output.getPosition();
+        this.stepOffsets.add(blockStart);
+        this.output.putInt(ActorLogFormat.STEP_MAGIC);
+        this.output.putInt(isKeyframe ? ActorLogFormat.KIND_FULL : ActorLogFormat.KIND_DELTA);
+        this.output.putInt(stepIndex);
+        // payloadLengthは書き込み後に埋める
+        this.output.putLong(0);
+
+        if (isKeyframe) {
+            step.encodeFull(this.output);
+        } else {
+            step.encodeDelta(this.output, this.previous);
+        }
+        this.output.patchLong(blockStart + ActorLogFormat.BLOCK_HEADER_LENGTH - Long.BYTES,
+                this.output.getPosition() - blockStart - ActorLogFormat.BLOCK_HEADER_LENGTH);
+        this.previous = step;
+    }
+
+    /**
+     * 書き込み済みのStep数
+     */
+    public int getStepCount() {
+        return this.stepOffsets.size();
+    }
+
+    /**
+     * 書き込み済みのStepをディスクに同期する(索引はcloseまで書き込まない)
+     */
+    public void sync() throws IOException {
+        this.output.sync();
+    }
+
+    /**
+     * 索引を書き込んで閉じる
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (long stepOffset : this.stepOffsets) this.output.putLong(stepOffset);
+            this.output.putInt(this.stepOffsets.size());
+            this.output.putBytes(ActorLogFormat.INDEX_MAGIC);
+        } finally {
+            this.output.close();
+        }
+    }
+}
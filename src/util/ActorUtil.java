@@ -1,22 +1,19 @@
 package util;
 
 import model.Actor;
+import model.ActorStore;
 import model.PurchaseInfo;
+import model.SimulationContext;
 
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static util.Const.*;
-
 /**
  * Created by yutakase on 2016/12/04.
  */
 public final class ActorUtil {
 
-    // 全Actorのリスト
-    private static List<Actor> actors;
-
     // 購入先比較
     private static Comparator<PurchaseInfo> purchaseInfoComparator = (p1, p2) -> Double.compare(p1.getProfit(), p2.getProfit());
 
@@ -24,28 +21,6 @@ public final class ActorUtil {
     private ActorUtil() {
     }
 
-    /**
-     * Actorのリストを生成
-     */
-    public static List<Actor> createActors() {
-        actors = IntStream
-                .range(0, ACTOR_COUNT)
-                .mapToObj(Actor::new)
-                .collect(Collectors.toList());
-        return actors;
-    }
-
-    /**
-     * Test用Actorのリストを生成
-     */
-    public static List<Actor> createTestActors() {
-        actors = IntStream
-                .range(0, ACTOR_COUNT)
-                .mapToObj(i -> new Actor(i, "test"))
-                .collect(Collectors.toList());
-        return actors;
-    }
-
     /**
      * 利得計算
      *
@@ -55,13 +30,8 @@ public final class ActorUtil {
      * @return 利得
      */
     public static double calcProfit(Actor provider, Actor consumer, int serviceId) {
-        double value = calcValue(provider, consumer, serviceId);
-        // 自給の場合は0
-        boolean isSelfService = provider.equals(consumer);
-        double priceCost = isSelfService ? 0 : provider.getPrice(serviceId);
-        double dist = isSelfService ? 0 : CalcUtil.calcDist(provider.getPos(), consumer.getPos());
-
-        return calcProfit(value, priceCost, dist);
+        // 自給の場合の価格、距離の扱いも含めてカーネルで計算
+        return ProfitKernel.calcProfit(provider.getStore(), provider.getId(), consumer.getId(), serviceId);
     }
 
     /**
@@ -70,10 +40,11 @@ public final class ActorUtil {
      * @param value     価値
      * @param priceCost 価格
      * @param dist      提供Actorまでの距離
+     * @param moveCost  単位距離あたりの移動コスト
      * @return 利得
      */
-    private static double calcProfit(double value, double priceCost, double dist) {
-        return value - priceCost - dist * MOVE_COST;
+    static double calcProfit(double value, double priceCost, double dist, double moveCost) {
+        return value - priceCost - dist * moveCost;
     }
 
     /**
@@ -85,33 +56,21 @@ public final class ActorUtil {
      * @return 価値
      */
     public static double calcValue(Actor provider, Actor consumer, int serviceId) {
-        List<Double> capability = provider.getCapabilities(serviceId);
-        List<Double> feature = consumer.getFeature(serviceId);
-        return calcValue(capability, feature);
-    }
-
-    /**
-     * 価値計算
-     *
-     * @param capability 能力ベクトル
-     * @param feature    評価ベクトル
-     * @return 価値
-     */
-    private static double calcValue(List<Double> capability, List<Double> feature) {
-        return CalcUtil.dotProduct(capability, feature);
+        return ProfitKernel.calcValue(provider.getStore(), provider.getId(), consumer.getId(), serviceId);
     }
 
     /**
      * トーラス空間上の座標に変換
      *
-     * @param p 座標
+     * @param p         座標
+     * @param fieldSize フィールドの一辺の長さ
      * @return トーラス空間上の座標
      */
-    public static int convertTorusPos(int p) {
-        if (p > FIELD_SIZE - 1) {
-            return p - FIELD_SIZE;
+    public static int convertTorusPos(int p, int fieldSize) {
+        if (p > fieldSize - 1) {
+            return p - fieldSize;
         } else if (p < 0) {
-            return p + FIELD_SIZE;
+            return p + fieldSize;
         } else {
             return p;
         }
@@ -128,64 +87,128 @@ public final class ActorUtil {
      * @param marketActors 市場範囲にいるActorのIDを格納するリスト
      */
     public static void updateMarketActors(Actor hostActor, int[] hostPos, List<Integer> marketActors) {
-        Optional.ofNullable(actors).ifPresent(actors -> {
+        hostActor.getContext().ifPresent(context -> {
+            List<Actor> actors = context.getActors();
+            Optional<SpatialGrid> spatialGrid = context.getSpatialGrid();
             marketActors.clear();
             // 取引可能な範囲にいるActorのIDのを登録
-            marketActors.addAll(actors.stream().parallel()
-                    .filter(targetActor -> !targetActor.equals(hostActor) && isMarketRange(hostPos, targetActor.getPos()))
-                    .mapToInt(Actor::getId)
-                    .boxed()
-                    .collect(Collectors.toList()));
+            if (hostActor.getConfig().isUseSpatialGrid() && spatialGrid.isPresent()) {
+                // 近傍セルのみ探索
+                marketActors.addAll(spatialGrid.get().findMarketActorIds(hostActor, hostPos, actors));
+            } else {
+                // 総当たり
+                marketActors.addAll(actors.stream().parallel()
+                        .filter(targetActor -> !targetActor.equals(hostActor) && isMarketRange(hostPos, targetActor))
+                        .mapToInt(Actor::getId)
+                        .boxed()
+                        .collect(Collectors.toList()));
+            }
         });
     }
 
     /**
      * 取引可能な距離かどうか
      *
-     * @param posA 座標A
-     * @param posB 座標B
+     * @param posA   座標A
+     * @param posB   座標B
+     * @param config 設定(フィールドの大きさ、市場範囲)
+     * @return T or F
+     */
+    public static boolean isMarketRange(int[] posA, int[] posB, SimulationConfig config) {
+        // 平方根を取らずに距離の2乗で比較
+        double distSquared = CalcUtil.calcDistSquared(posA, 0, posB, 0, config.getFieldSize());
+        return distSquared <= config.getMarketRange() * config.getMarketRange();
+    }
+
+    /**
+     * 取引可能な距離かどうか
+     *
+     * @param pos         座標
+     * @param targetActor 判定するActor
      * @return T or F
      */
-    public static boolean isMarketRange(int[] posA, int[] posB) {
-        double dist = CalcUtil.calcDist(posA, posB);
-        return dist <= MARKET_RANGE;
+    public static boolean isMarketRange(int[] pos, Actor targetActor) {
+        double distSquared = targetActor.getStore().calcDistSquared(pos, targetActor.getId());
+        int marketRange = targetActor.getConfig().getMarketRange();
+        return distSquared <= marketRange * marketRange;
     }
 
     /**
      * serviceIdのサービスに関する最大利得と最大利得となるActorのIDのを計算
      */
     public static Optional<PurchaseInfo> selectProvider(Actor hostActor, List<Integer> marketActorIdList, int serviceId) {
-        return Optional.ofNullable(actors).map(actors -> {
-            // 自給時の利得を計算
-            PurchaseInfo selfPurchase = calcPurchaseInfo(hostActor, hostActor, serviceId);
-
-            // 交換可能Actorの中で利得最大となるActorを計算
-            Optional<PurchaseInfo> maxProfitPurchaseOptional = marketActorIdList.stream()
-                    .map(marketActorId -> calcPurchaseInfo(actors.get(marketActorId), hostActor, serviceId))
-                    .max(purchaseInfoComparator);
+        return getActors(hostActor).map(actors -> {
+            ActorStore store = hostActor.getStore();
+            int hostId = hostActor.getId();
+
+            // 交換可能Actorの中で利得最大となるActorを計算、同じ利得なら先にあるActor
+            int maxProfitId = -1;
+            double maxProfit = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < marketActorIdList.size(); i++) {
+                int marketActorId = marketActorIdList.get(i);
+                double profit = ProfitKernel.calcProfit(store, marketActorId, hostId, serviceId);
+                if (maxProfitId < 0 || profit > maxProfit) {
+                    maxProfitId = marketActorId;
+                    maxProfit = profit;
+                }
+            }
+            return toSelectedPurchaseInfo(store, hostId, maxProfitId, maxProfit, serviceId);
+        });
+    }
 
-            // 自給が購入か、利得が大きい方を返却する
-            if (maxProfitPurchaseOptional.isPresent()) {
-                PurchaseInfo maxProfitPurchase = maxProfitPurchaseOptional.get();
-                return (maxProfitPurchase.getProfit() > selfPurchase.getProfit()) ? maxProfitPurchase : selfPurchase;
-            } else {
-                // 交換可能なActorがいない場合、自給の結果を返す
-                return selfPurchase;
+    /**
+     * hostActorの市場範囲のActorからexcludedActorIdのActorを除いて、
+     * serviceIdのサービスに関する最大利得と最大利得となるActorのIDのを計算
+     * 市場範囲のリストを複製せずにストアを直接走査する
+     *
+     * @param excludedActorId 購入先から除くActorのID、除かない場合は-1
+     */
+    public static Optional<PurchaseInfo> selectProvider(Actor hostActor, int excludedActorId, int serviceId) {
+        return getActors(hostActor).map(actors -> {
+            ActorStore store = hostActor.getStore();
+            int hostId = hostActor.getId();
+
+            // 交換可能Actorの中で利得最大となるActorを計算、同じ利得なら先にあるActor
+            int maxProfitId = -1;
+            double maxProfit = Double.NEGATIVE_INFINITY;
+            int marketActorCount = store.getMarketActorCount(hostId);
+            for (int i = 0; i < marketActorCount; i++) {
+                int marketActorId = store.getMarketActorId(hostId, i);
+                if (marketActorId == excludedActorId) continue;
+                double profit = ProfitKernel.calcProfit(store, marketActorId, hostId, serviceId);
+                if (maxProfitId < 0 || profit > maxProfit) {
+                    maxProfitId = marketActorId;
+                    maxProfit = profit;
+                }
             }
+            return toSelectedPurchaseInfo(store, hostId, maxProfitId, maxProfit, serviceId);
         });
     }
 
+    /**
+     * 市場範囲の最大利得と自給を比べ、利得が大きい方の購入情報を返す
+     * 交換可能なActorがいない場合(maxProfitId = -1)は自給
+     */
+    private static PurchaseInfo toSelectedPurchaseInfo(ActorStore store, int hostId, int maxProfitId, double maxProfit, int serviceId) {
+        // 自給時の利得を計算
+        double selfProfit = ProfitKernel.calcProfit(store, hostId, hostId, serviceId);
+        if (maxProfitId >= 0 && maxProfit > selfProfit) {
+            return new PurchaseInfo(maxProfitId, maxProfit, store.getPrice(maxProfitId, serviceId));
+        }
+        return new PurchaseInfo(hostId, selfProfit, 0);
+    }
+
     /**
      * serviceIdのサービスに関する選考希望のリストを生成
      */
     public static Optional<List<PurchaseInfo>> calcProviderSelectList(Actor hostActor, List<Integer> marketActorIdList, int serviceId) {
-        return Optional.ofNullable(actors).map(actors -> {
+        return getActors(hostActor).map(actors -> {
             // 自給時の利得を計算
             PurchaseInfo selfPurchase = calcPurchaseInfo(hostActor, hostActor, serviceId);
 
             // 交換可能な範囲のActorとの利得を計算
             List<PurchaseInfo> selectList = marketActorIdList.stream()
-                    .map(marketActorId -> calcPurchaseInfo(actors.get(marketActorId), hostActor, serviceId))
+                    .map(marketActorId -> calcPurchaseInfo(hostActor.getStore(), marketActorId, hostActor.getId(), serviceId))
                     .collect(Collectors.toCollection(LinkedList::new));
 
             // 自給を追加し降順にsort
@@ -196,13 +219,43 @@ public final class ActorUtil {
         });
     }
 
+    /**
+     * serviceIdのサービスに関する選考希望のリストを、ソートせずに生成
+     * 市場範囲のActor、自給の順に並べ、PreferenceListが取り出す時に利得の降順に選択する
+     * 取り出す順はcalcProviderSelectListと同じ
+     */
+    public static Optional<PreferenceList> calcProviderPreferenceList(Actor hostActor, int serviceId) {
+        return getActors(hostActor).map(actors -> {
+            ActorStore store = hostActor.getStore();
+            int hostId = hostActor.getId();
+            int marketActorCount = hostActor.getMarketActorCount();
+            int[] providerIds = new int[marketActorCount + 1];
+            double[] profits = new double[marketActorCount + 1];
+            for (int i = 0; i < marketActorCount; i++) {
+                providerIds[i] = hostActor.getMarketActorId(i);
+                profits[i] = ProfitKernel.calcProfit(store, providerIds[i], hostId, serviceId);
+            }
+            // 自給
+            providerIds[marketActorCount] = hostId;
+            profits[marketActorCount] = ProfitKernel.calcProfit(store, hostId, hostId, serviceId);
+            return new PreferenceList(providerIds, profits);
+        });
+    }
+
     /**
      * サービス交換による購入情報を計算
      */
     private static PurchaseInfo calcPurchaseInfo(Actor provider, Actor consumer, int serviceId) {
-        int price = (provider.equals(consumer)) ? 0 : provider.getPrice(serviceId);
-        double profit = ActorUtil.calcProfit(provider, consumer, serviceId);
-        return new PurchaseInfo(provider.getId(), profit, price);
+        return calcPurchaseInfo(provider.getStore(), provider.getId(), consumer.getId(), serviceId);
+    }
+
+    /**
+     * サービス交換による購入情報を計算
+     */
+    private static PurchaseInfo calcPurchaseInfo(ActorStore store, int providerId, int consumerId, int serviceId) {
+        int price = (providerId == consumerId) ? 0 : store.getPrice(providerId, serviceId);
+        double profit = ProfitKernel.calcProfit(store, providerId, consumerId, serviceId);
+        return new PurchaseInfo(providerId, profit, price);
     }
 
     /**
@@ -214,7 +267,7 @@ public final class ActorUtil {
      */
     public static List<List<Integer>> exploreEcosystem(Actor actor, int limitCount) {
         List<List<Integer>> pathList = new ArrayList<>();
-        Optional.ofNullable(actors).ifPresent(actors -> {
+        getActors(actor).ifPresent(actors -> {
             // サービス交換のPathを保存するList
             List<Integer> path = new ArrayList<>();
             int actorId = actor.getId();
@@ -224,7 +277,7 @@ public final class ActorUtil {
                     .flatMap(Collection::stream)
                     .filter(id -> id != actorId)
                     .collect(Collectors.toList());
-            consumerIds.forEach(consumerId -> recursiveExploreConsumerActor(actors.get(consumerId), actorId, actorId, path, pathList, limitCount, 0));
+            consumerIds.forEach(consumerId -> recursiveExploreConsumerActor(actors, actors.get(consumerId), actorId, actorId, path, pathList, limitCount, 0));
         });
         return pathList;
     }
@@ -233,6 +286,7 @@ public final class ActorUtil {
      * サービス交換を再帰的に探索
      * 循環が発見できればPathListに追加
      *
+     * @param actors     全Actorのリスト
      * @param actor
      * @param providerId 提供者
      * @param targetId   循環を探しているActorのID
@@ -241,7 +295,7 @@ public final class ActorUtil {
      * @param limitCount 深さ上限
      * @param count      現在の深さ
      */
-    private static void recursiveExploreConsumerActor(Actor actor, int providerId, int targetId, List<Integer> path, List<List<Integer>> pathList, int limitCount, int count) {
+    private static void recursiveExploreConsumerActor(List<Actor> actors, Actor actor, int providerId, int targetId, List<Integer> path, List<List<Integer>> pathList, int limitCount, int count) {
         if (count == limitCount) return;
 
         int actorId = actor.getId();
@@ -259,7 +313,7 @@ public final class ActorUtil {
                     .filter(id -> id != actorId)
                     .filter(id -> (providerId == targetId) || (id != providerId))
                     .collect(Collectors.toList());
-            consumerIds.forEach(consumerId -> recursiveExploreConsumerActor(actors.get(consumerId), actorId, targetId, path, pathList, limitCount, count + 1));
+            consumerIds.forEach(consumerId -> recursiveExploreConsumerActor(actors, actors.get(consumerId), actorId, targetId, path, pathList, limitCount, count + 1));
         }
         path.remove(path.size() - 1);
     }
@@ -268,7 +322,7 @@ public final class ActorUtil {
      * hostActorの売却先ActorのIDのリストを計算
      */
     public static Optional<List<Integer>> countConsumer(Actor hostActor, int serviceId) {
-        return Optional.ofNullable(actors).map(actors -> {
+        return getActors(hostActor).map(actors -> {
             List<Integer> consumerIdList = new ArrayList<>();
             // サービス交換可能な各Actorに対して
             hostActor.getMarketActorIdList().forEach(marketActorId -> {
@@ -291,46 +345,52 @@ public final class ActorUtil {
      * hostActor抜きで購入先を計算させ、最後に価格を変更したhostActorと比較し、売却先かどうか判断する
      */
     public static Optional<List<Integer>> countConsumerSimulate(Actor hostActor, int price, int serviceId) {
-        return Optional.ofNullable(actors).map(actors -> {
+        return getActors(hostActor).map(actors -> {
             List<Integer> consumerIdList = new ArrayList<>();
+            ActorStore store = hostActor.getStore();
+            int hostId = hostActor.getId();
             // サービス交換可能な各Actorに対して
-            hostActor.getMarketActorIdList().forEach(marketActorId -> {
-                Actor marketActor = actors.get(marketActorId);
-                // 交換先Actorの交換可能Actorリスト
-                List<Integer> marketActorsIdListOfMarketActor = new ArrayList<>();
-                marketActorsIdListOfMarketActor.addAll(marketActor.getMarketActorIdList());
+            int marketActorCount = store.getMarketActorCount(hostId);
+            for (int i = 0; i < marketActorCount; i++) {
+                int marketActorId = store.getMarketActorId(hostId, i);
                 // 自分抜きで購入先を選択させる
-                if (marketActorsIdListOfMarketActor.contains(hostActor.getId())) {
-                    marketActorsIdListOfMarketActor.remove(Integer.valueOf(hostActor.getId()));
+                double selectedProfit = calcSelectedProfitWithout(hostActor, actors.get(marketActorId), serviceId);
+                // 自分との交換による相手の利得
+                double hostActorProfit = ProfitKernel.calcProfit(store, hostId, marketActorId, serviceId, price);
+
+                // 自分との交換の利得のほうが大きければ売却先としてListに追加
+                if (hostActorProfit > selectedProfit) {
+                    consumerIdList.add(marketActorId);
                 }
-                Optional<Integer> selectedActorIdOptional = marketActor.selectProviderId(serviceId, marketActorsIdListOfMarketActor);
-
-                selectedActorIdOptional.ifPresent(selectedId -> {
-                    // 選択された購入による利得
-                    double selectedProfit = calcPurchaseInfo(actors.get(selectedId), marketActor, serviceId).getProfit();
-                    // 自分との交換による相手の利得
-                    double value = ActorUtil.calcValue(hostActor.getCapabilities(serviceId), marketActor.getFeature(serviceId));
-                    double dist = CalcUtil.calcDist(hostActor.getPos(), marketActor.getPos());
-                    double hostActorProfit = ActorUtil.calcProfit(value, price, dist);
-
-                    // 自分との交換の利得のほうが大きければ売却先としてListに追加
-                    if (hostActorProfit > selectedProfit) {
-                        consumerIdList.add(marketActorId);
-                    }
-                });
-            });
+            }
             return consumerIdList;
         });
     }
 
+    /**
+     * hostActor抜きでmarketActorに購入先を選択させた時の、marketActorの利得
+     * hostActorがContextに登録されていること
+     */
+    public static double calcSelectedProfitWithout(Actor hostActor, Actor marketActor, int serviceId) {
+        // キャッシュがあれば再計算しない
+        Optional<ProviderRanking> ranking = hostActor.getContext().flatMap(SimulationContext::getProviderRanking);
+        if (ranking.isPresent()) {
+            return ranking.get().getSelectedProfitWithout(marketActor.getId(), hostActor.getId(), serviceId);
+        }
+        // 選択された購入による利得
+        return selectProvider(marketActor, hostActor.getId(), serviceId)
+                .map(PurchaseInfo::getProfit)
+                .orElseThrow(IllegalStateException::new);
+    }
+
     /**
      * 全consumerのFeatureの合成ベクトルの向きベクトルを返す
      */
-    public static Optional<List<Double>> calcConsumersFeature(List<Integer> consumerIds, int serviceId) {
+    public static Optional<List<Double>> calcConsumersFeature(Actor hostActor, List<Integer> consumerIds, int serviceId) {
         if (consumerIds.size() == 0) return Optional.empty();
-        return Optional.ofNullable(actors).map(actors -> {
+        return getActors(hostActor).map(actors -> {
             // featureベクトルをすべて合成
-            List<Double> consumerFeatureSum = IntStream.range(0, CAPABILITIES_LISTS.get(serviceId).size())
+            List<Double> consumerFeatureSum = IntStream.range(0, hostActor.getConfig().getCapabilitiesLists().get(serviceId).size())
                     .mapToDouble(dim -> consumerIds.stream().mapToDouble(consumerId -> actors.get(consumerId).getFeature(serviceId).get(dim)).sum())
                     .boxed()
                     .collect(Collectors.toList());
@@ -345,7 +405,7 @@ public final class ActorUtil {
      */
     public static String providerToString(Actor hostActor) {
         StringBuilder sb = new StringBuilder();
-        IntStream.range(0, SERVICE_COUNT)
+        IntStream.range(0, hostActor.getConfig().getServiceCount())
                 .forEach(serviceId -> {
                     sb.append("serviceID: ")
                             .append(serviceId)
@@ -370,8 +430,8 @@ public final class ActorUtil {
      */
     public static String consumersToString(Actor provider, List<List<Integer>> consumerActorsIdList) {
         StringBuilder sb = new StringBuilder();
-        Optional.ofNullable(actors).ifPresent(actors1 ->
-                IntStream.range(0, SERVICE_COUNT)
+        getActors(provider).ifPresent(actors1 ->
+                IntStream.range(0, provider.getConfig().getServiceCount())
                         .forEach(serviceId -> {
                             sb.append("serviceID: ")
                                     .append(serviceId)
@@ -392,12 +452,10 @@ public final class ActorUtil {
         return sb.toString();
     }
 
-    public static void setActors(List<Actor> actors) {
-        ActorUtil.actors = actors;
-    }
-
-    public static Optional<List<Actor>> getActors() {
-        return Optional.ofNullable(actors);
+    /**
+     * Actorが属するシミュレーションの全Actorのリスト
+     */
+    private static Optional<List<Actor>> getActors(Actor actor) {
+        return actor.getContext().map(SimulationContext::getActors);
     }
 }
-
@@ -1,10 +1,9 @@
 package util;
 
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import static util.Const.DIM;
-import static util.Const.FIELD_SIZE;
 
 /**
  * Created by yutakase on 2016/11/29.
@@ -21,19 +20,48 @@ public final class CalcUtil {
      * @param max       最大値
      * @return 乱数
      */
-    public static double generateRandomDouble(Random generator, double min, double max) {
+    public static double generateRandomDouble(SplittableRandom generator, double min, double max) {
         return generator.nextDouble() * (max - min) + min;
     }
+
     /**
      * 乱数を生成し返す(正規分布)
+     * SplittableRandomにはnextGaussianがないため極座標法(Marsaglia polar method)で生成する
      *
      * @param generator 乱数生成器
-     * @param mu 平均
-     * @param sd 標準偏差
+     * @param mu        平均
+     * @param sd        標準偏差
      * @return 乱数
      */
-    public static double generateRandomGaussian(Random generator, double mu, double sd) {
-        return generator.nextGaussian() * sd + mu;
+    public static double generateRandomGaussian(SplittableRandom generator, double mu, double sd) {
+        double v1, v2, s;
+        do {
+            v1 = 2 * generator.nextDouble() - 1;
+            v2 = 2 * generator.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * Math.sqrt(-2 * Math.log(s) / s) * sd + mu;
+    }
+
+    /**
+     * シードと番号から独立した乱数生成器を生成
+     * 同じシードと番号からは常に同じ系列が得られるため、生成順序やスレッド数に依存しない
+     *
+     * @param seed  シード
+     * @param index 番号(ActorのIDなど)
+     * @return 乱数生成器
+     */
+    public static SplittableRandom createRandom(long seed, long index) {
+        return new SplittableRandom(mix64(seed * 0x9E3779B97F4A7C15L + index));
+    }
+
+    /**
+     * 64bitの値を攪拌(MurmurHash3のfinalizer)
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
     }
 
 
@@ -41,27 +69,47 @@ public final class CalcUtil {
      * 距離計算
      *
      * @param posA 座標A
-     * @param posB 座標B
+     * @param posB      座標B
+     * @param fieldSize トーラス世界の一辺の長さ
      * @return 距離
      */
-    public static double calcDist(int[] posA, int[] posB) {
-        return calcEuclidDist(posA, posB);
+    public static double calcDist(int[] posA, int[] posB, int fieldSize) {
+        return calcEuclidDist(posA, posB, fieldSize);
     }
 
     /**
      * ユークリッド距離計算
      *
      * @param posA 座標A
-     * @param posB 座標B
+     * @param posB      座標B
+     * @param fieldSize トーラス世界の一辺の長さ
      * @return 距離
      */
-    private static double calcEuclidDist(int[] posA, int[] posB) {
-        double[] distVector = calcDistVector(posA, posB);
+    private static double calcEuclidDist(int[] posA, int[] posB, int fieldSize) {
+        return Math.sqrt(calcDistSquared(posA, 0, posB, 0, fieldSize));
+    }
+
+    /**
+     * トーラス世界でのユークリッド距離の2乗を計算
+     * 配列上の連続した領域を座標として扱い、配列を生成しない
+     *
+     * @param positionsA 座標Aを含む配列
+     * @param offsetA    座標Aの先頭位置
+     * @param positionsB 座標Bを含む配列
+     * @param offsetB    座標Bの先頭位置
+     * @param fieldSize  トーラス世界の一辺の長さ
+     * @return 距離の2乗
+     */
+    public static double calcDistSquared(int[] positionsA, int offsetA, int[] positionsB, int offsetB, int fieldSize) {
         double dist = 0;
         for (int i = 0; i < DIM; i++) {
-            dist += Math.pow(distVector[i], 2);
+            // 通常距離とトーラス距離の短い方
+            double normalDist = Math.abs(positionsB[offsetB + i] - positionsA[offsetA + i]);
+            double torusDist = fieldSize - normalDist;
+            double d = (normalDist > torusDist) ? torusDist : normalDist;
+            dist += d * d;
         }
-        return Math.sqrt(dist);
+        return dist;
     }
 
     /**
@@ -69,10 +117,11 @@ public final class CalcUtil {
      * トーラス世界
      *
      * @param posA 座標A
-     * @param posB 座標B
+     * @param posB      座標B
+     * @param fieldSize トーラス世界の一辺の長さ
      * @return 距離ベクトル
      */
-    public static double[] calcDistVector(int[] posA, int[] posB) {
+    public static double[] calcDistVector(int[] posA, int[] posB, int fieldSize) {
         double[] distVector = new double[DIM];
         for (int i = 0; i < DIM; i++) {
             distVector[i] = posB[i] - posA[i];
@@ -83,7 +132,7 @@ public final class CalcUtil {
         double[] torusDist = new double[DIM];
         for (int i = 0; i < DIM; i++) {
             normalDist[i] = Math.abs(distVector[i]);
-            torusDist[i] = FIELD_SIZE - normalDist[i];
+            torusDist[i] = fieldSize - normalDist[i];
             // トーラス距離の方が短ければ距離を更新
             if (normalDist[i] > torusDist[i]) {
                 // 方向ベクトルを計算
@@ -93,6 +142,25 @@ public final class CalcUtil {
         return distVector;
     }
 
+    /**
+     * 2つのベクトルの内積を計算
+     * 配列上の連続した領域をベクトルとして扱う
+     *
+     * @param vec1    ベクトル1を含む配列
+     * @param offset1 ベクトル1の先頭位置
+     * @param vec2    ベクトル2を含む配列
+     * @param offset2 ベクトル2の先頭位置
+     * @param length  ベクトルの次元
+     * @return 内積
+     */
+    public static double dotProduct(double[] vec1, int offset1, double[] vec2, int offset2, int length) {
+        double res = 0;
+        for (int i = 0; i < length; i++) {
+            res += vec1[offset1 + i] * vec2[offset2 + i];
+        }
+        return res;
+    }
+
     /**
      * 2つのベクトルの内積を計算
      */
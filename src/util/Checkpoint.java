@@ -0,0 +1,146 @@
+package util;
+
+import model.Actor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static util.Const.DIM;
+
+/**
+ * シミュレーションを再開するためのStepの区切りの状態
+ * Actorはすべて乱数のシードとIDから生成済みで以降は乱数を使わないため、Actorの状態、
+ * 次に実行するStepと書き込み済みの価格均衡ループの回数があれば中断しなかった場合と同じ結果になる
+ * <pre>
+ * ヘッダ(固定長HEADER_LENGTHバイト、リトルエンディアン)
+ *   byte[4] MAGIC, int version, int stepCount, int priceIterationCount, int actorCount, int serviceCount,
+ *   int capabilityCount, int featureStride, int dim, int configLength, 残りは0
+ * 設定 byte[configLength] (SimulationConfig.toPropertiesのUTF-8テキスト)
+ * 評価ベクトル double[actorCount * featureStride]
+ * 売上最大の価格 int[actorCount] 個数、int[] 価格 (version 1のみ、Stepの区切りでは現在の価格と同じなので読み飛ばす)
+ * Actorの状態 (ActorLogFormatのKIND_FULLのpayload)
+ * </pre>
+ */
+public final class Checkpoint {
+
+    public static final int VERSION = 2;
+    public static final int HEADER_LENGTH = 64;
+
+    static final byte[] MAGIC = {'S', 'S', 'C', 'P'};
+
+    private final SimulationConfig config;
+    // 次に実行するStep
+    private final int stepCount;
+    // 書き込み済みの価格均衡ループの回数
+    private final int priceIterationCount;
+    private final double[] features;
+    private final ActorLogStep step;
+
+    Checkpoint(SimulationConfig config, int stepCount, int priceIterationCount, double[] features, ActorLogStep step) {
+        this.config = config;
+        this.stepCount = stepCount;
+        this.priceIterationCount = priceIterationCount;
+        this.features = features;
+        this.step = step;
+    }
+
+    /**
+     * ファイルから読み込む
+     */
+    public static Checkpoint read(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (!Arrays.equals(ActorLogFormat.getBytes(buffer, MAGIC.length), MAGIC)) throw new IOException("not a checkpoint: " + fileName);
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) throw new IOException("unsupported version: " + version);
+            int stepCount = buffer.getInt();
+            int priceIterationCount = buffer.getInt();
+            int actorCount = buffer.getInt();
+            int serviceCount = buffer.getInt();
+            int capabilityCount = buffer.getInt();
+            int featureStride = buffer.getInt();
+            int dim = buffer.getInt();
+            if (dim != DIM) throw new IOException("unsupported dim: " + dim);
+            int configLength = buffer.getInt();
+            buffer.position(HEADER_LENGTH);
+
+            SimulationConfig config = ActorLogFormat.decodeConfig(ActorLogFormat.getBytes(buffer, configLength));
+            double[] features = ActorLogFormat.getDoubles(buffer, actorCount * featureStride);
+            if (version == 1) {
+                int[] bestPriceCounts = ActorLogFormat.getInts(buffer, actorCount);
+                buffer.position(buffer.position() + Arrays.stream(bestPriceCounts).sum() * Integer.BYTES);
+            }
+            ActorLogStep step = ActorLogStep.decodeFull(buffer, actorCount, serviceCount, capabilityCount);
+            return new Checkpoint(config, stepCount, priceIterationCount, features, step);
+        }
+    }
+
+    /**
+     * 一時ファイルに書き込んでから置き換える
+     * 書き込み中に終了しても前回のファイルが残る
+     */
+    void write(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        Path tempPath = Paths.get(fileName + ".tmp");
+        byte[] configBytes = ActorLogFormat.encodeConfig(this.config);
+        try (LogOutput output = new LogOutput(tempPath.toString())) {
+            output.putBytes(MAGIC);
+            output.putInt(VERSION);
+            output.putInt(this.stepCount);
+            output.putInt(this.priceIterationCount);
+            output.putInt(this.config.getActorCount());
+            output.putInt(this.config.getServiceCount());
+            output.putInt(this.config.getCapabilityCount());
+            output.putInt(this.features.length / this.config.getActorCount());
+            output.putInt(DIM);
+            output.putInt(configBytes.length);
+            while (output.getPosition() < HEADER_LENGTH) output.putByte((byte) 0);
+            output.putBytes(configBytes);
+            for (double feature : this.features) output.putDouble(feature);
+            this.step.encodeFull(output);
+            output.sync();
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public SimulationConfig getConfig() {
+        return this.config;
+    }
+
+    public int getStepCount() {
+        return this.stepCount;
+    }
+
+    public int getPriceIterationCount() {
+        return this.priceIterationCount;
+    }
+
+    double[] getFeatures() {
+        return this.features;
+    }
+
+    /**
+     * 再開するシミュレーションのActorを復元
+     * このCheckpointの配列をそのまま使うので、1度だけ呼ぶ
+     */
+    public List<Actor> restoreActors() {
+        List<Actor> actors = this.step.toActors(this.config, this.features);
+        // シミュレーションでは売却先を書き換えるので変更可能なリストにする
+        for (Actor actor : actors) {
+            for (int serviceId = 0; serviceId < this.config.getServiceCount(); serviceId++) {
+                actor.setConsumerActorIdList(serviceId, new ArrayList<>(actor.getConsumerActorIdList(serviceId)));
+            }
+        }
+        return actors;
+    }
+}
@@ -3,7 +3,6 @@ package util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Created by yutakase on 2016/11/29.
@@ -25,6 +24,24 @@ public final class Const {
     public static final int MAX_PRICE = 10000;
     public static final int BALANCE_PRICE_THRESHOLD = 100;
     public static final int MAX_CONSUMERS = 3;
+    // 売上最大となる価格の探索方法
+    public static final PriceSearchMode PRICE_SEARCH_MODE = PriceSearchMode.BREAKPOINT;
+    // サービス交換マッチングの実行方法
+    public static final MatchingMode MATCHING_MODE = MatchingMode.WORKLIST;
+    // 市場範囲の探索に空間インデックスを使うか、falseなら総当たり
+    public static final boolean USE_SPATIAL_GRID = true;
+    // 価格均衡ループで価格の周期的な振動を検出した時の扱い
+    public static final OscillationPolicy OSCILLATION_POLICY = OscillationPolicy.NONE;
+    // 振動の検出に使う価格の履歴の回数、この回数以下の周期を検出する
+    public static final int OSCILLATION_HISTORY = 16;
+    // 売上最大の価格の計算に使うスレッド数、0なら利用可能なプロセッサ数
+    public static final int PRICE_PARALLELISM = 0;
+    // Actorのログで全状態を書き込むStepの間隔、間のStepは前のStepとの差分のみ
+    public static final int LOG_KEYFRAME_INTERVAL = 10;
+    // 価格のログのブロックの圧縮方法
+    public static final PriceLogCompression PRICE_LOG_COMPRESSION = PriceLogCompression.DEFLATE;
+    // 再開用のCheckpointを書き込むStepの間隔、0なら書き込まない
+    public static final int CHECKPOINT_INTERVAL = 0;
 
     // Actor Parameter
     public static final int CAPABILITY_COUNT = 6;
@@ -64,12 +81,12 @@ public final class Const {
 
     public static final int ALL_SERVICES_ID = SERVICE_COUNT;
 
-    // Actorの座標生成に用いる乱数
-    public static final Random POS_RAND_GENERATOR = new Random(1);
-    // Capability(能力)の生成に用いる乱数
-    public static final Random CAPABILITY_RAND_GENERATOR = new Random(2);
-    // Feature(能力に対する重み)の生成に用いる乱数
-    public static final Random FEATURE_RAND_GENERATOR = new Random(3);
+    // Actorの座標生成に用いる乱数のシード
+    public static final long POS_SEED = 1;
+    // Capability(能力)の生成に用いる乱数のシード
+    public static final long CAPABILITY_SEED = 2;
+    // Feature(能力に対する重み)の生成に用いる乱数のシード
+    public static final long FEATURE_SEED = 3;
 
     public static final String SIMULATION_TEXT = "Simulation";
     public static final String LOAD_FILE_TEXT = "Load file";
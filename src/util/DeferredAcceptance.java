@@ -5,8 +5,6 @@ import model.Actor;
 import java.util.List;
 import java.util.stream.IntStream;
 
-import static util.Const.SERVICE_COUNT;
-
 /**
  * DAアルゴリズム
  * Created by yutakase on 2016/12/09.
@@ -17,8 +15,38 @@ public final class DeferredAcceptance {
 
     /**
      * actorsのサービス交換マッチング
+     * 設定のmatchingModeで実行方法を切り替える
      */
     public static void matching(List<Actor> actors) {
+        if (actors.isEmpty()) return;
+        matching(actors, actors.get(0).getConfig().getMatchingMode());
+    }
+
+    /**
+     * 実行方法を指定したactorsのサービス交換マッチング
+     */
+    public static void matching(List<Actor> actors, MatchingMode matchingMode) {
+        if (actors.isEmpty()) return;
+        switch (matchingMode) {
+            case WORKLIST:
+                WorklistDeferredAcceptance.matching(actors);
+                break;
+            case PARALLEL:
+                ParallelDeferredAcceptance.matching(actors);
+                break;
+            case ROUNDS:
+            default:
+                matchingRounds(actors);
+                break;
+        }
+    }
+
+    /**
+     * 未マッチの全Actorのプロポーズと全提供Actorの売却先の選別を、全員のマッチングが決まるまで繰り返す
+     */
+    private static void matchingRounds(List<Actor> actors) {
+        int serviceCount = actors.get(0).getConfig().getServiceCount();
+
         // 選考生成
         actors.parallelStream()
                 .forEach(Actor::updateSelectProviderList);
@@ -27,7 +55,7 @@ public final class DeferredAcceptance {
         while (!isAllMatched) {
             // マッチングが決定していないActorは現在の第一希望のActorへプロポーズ
             actors.forEach(actor ->
-                    IntStream.range(0, SERVICE_COUNT)
+                    IntStream.range(0, serviceCount)
                             .filter(serviceId -> !actor.isMatch(serviceId))
                             .forEach(serviceId -> {
                                 int providerId = actor.popSelectedProviderId(serviceId);
@@ -37,7 +65,7 @@ public final class DeferredAcceptance {
 
             // マッチング情報リセット
             actors.forEach(actor ->
-                    IntStream.range(0, SERVICE_COUNT)
+                    IntStream.range(0, serviceCount)
                             .forEach(serviceId -> actor.setIsMach(serviceId, false))
             );
 
@@ -46,7 +74,7 @@ public final class DeferredAcceptance {
 
             // マッチング情報更新
             actors.forEach(providerActor ->
-                    IntStream.range(0, SERVICE_COUNT)
+                    IntStream.range(0, serviceCount)
                             .forEach(serviceId ->
                                     providerActor.getConsumerActorIdList(serviceId)
                                             .forEach(consumerActorId -> {
@@ -63,7 +91,7 @@ public final class DeferredAcceptance {
             isAllMatched =
                     actors.parallelStream()
                             .allMatch(actor -> IntStream
-                                    .range(0, SERVICE_COUNT)
+                                    .range(0, serviceCount)
                                     .allMatch(actor::isMatch)
                             );
         }
@@ -14,50 +14,67 @@ public final class FileIO {
     private FileIO() {
     }
 
+    /**
+     * Actorのログを読み込む
+     * バイナリ形式(ActorLogFormat)か以前のJavaのシリアライズ形式かは先頭のバイトで判定する
+     * 以前の形式はActorLogConverterと同様に現在のActorに変換する
+     */
     public static Optional<List<List<Actor>>> loadAgentLog(String fileName) {
+        if (ActorLogFormat.isActorLog(fileName)) {
+            try (ActorLogReader reader = new ActorLogReader(fileName)) {
+                return Optional.of(reader.readAll());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return Optional.empty();
+        }
         try {
-            return Optional.of((List<List<Actor>>) openInputStream(fileName).readObject());
+            return Optional.of(ActorLogConverter.read(fileName));
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
         }
         return Optional.empty();
     }
 
-    public static void writeActorLog(String fileName, List<List<Actor>> agentLogList) {
-        ObjectOutputStream objectOutputStream;
-        try {
-            objectOutputStream = openOutputStream(fileName);
-            objectOutputStream.writeObject(agentLogList);
-            objectOutputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * 表示用にActorのログを開く
+     * バイナリ形式なら各Stepは参照された時にファイルから復元し(ActorLogCache)、
+     * 以前のJavaのシリアライズ形式なら全Stepを読み込む
+     */
+    public static Optional<List<List<Actor>>> openAgentLog(String fileName) {
+        if (ActorLogFormat.isActorLog(fileName)) {
+            try {
+                return Optional.of(new ActorLogCache(fileName));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return Optional.empty();
         }
+        return loadAgentLog(fileName);
     }
-    public static Optional<List<List<List<Integer>>>> loadPriceLog(String fileName) {
+
+    /**
+     * 価格のログを読み込む
+     * バイナリ形式(PriceLogFormat)か以前のJavaのシリアライズ形式かは先頭のバイトで判定する
+     */
+    public static Optional<PriceTrace> loadPriceLog(String fileName) {
+        if (PriceLogFormat.isPriceLog(fileName)) {
+            try {
+                return Optional.of(PriceLogReader.readAll(fileName));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return Optional.empty();
+        }
         try {
-            return Optional.of((List<List<List<Integer>>>) openInputStream(fileName).readObject());
+            return Optional.of(PriceTrace.of((List<List<List<Integer>>>) openInputStream(fileName).readObject()));
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
         }
         return Optional.empty();
     }
 
-    public static void writePriceLog(String fileName, List<List<List<Integer>>> agentLogList) {
-        ObjectOutputStream objectOutputStream;
-        try {
-            objectOutputStream = openOutputStream(fileName);
-            objectOutputStream.writeObject(agentLogList);
-            objectOutputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     private static ObjectInputStream openInputStream(String fileName) throws IOException {
         return new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)));
     }
-
-    private static ObjectOutputStream openOutputStream(String fileName) throws IOException {
-        return new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
-    }
 }
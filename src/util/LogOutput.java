@@ -0,0 +1,120 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ログのバイナリ形式の書き込み先(リトルエンディアン)
+ * 1MBのバッファに溜めてからファイルに書き込む
+ */
+final class LogOutput implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    // 書き込み済み(バッファ内を含む)のバイト数
+    private long position;
+
+    /**
+     * ファイルを作成して先頭から書き込む
+     */
+    LogOutput(String fileName) throws IOException {
+        this(FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), 0);
+    }
+
+    /**
+     * 既存のファイルをpositionで切り詰め、そこから追記する
+     */
+    LogOutput(FileChannel channel, long position) throws IOException {
+        this.channel = channel;
+        this.buffer = ActorLogFormat.allocate(BUFFER_SIZE);
+        this.position = position;
+        channel.truncate(position);
+        channel.position(position);
+    }
+
+    long getPosition() {
+        return this.position;
+    }
+
+    void putInt(int value) throws IOException {
+        this.ensureRemaining(Integer.BYTES);
+        this.buffer.putInt(value);
+        this.position += Integer.BYTES;
+    }
+
+    void putLong(long value) throws IOException {
+        this.ensureRemaining(Long.BYTES);
+        this.buffer.putLong(value);
+        this.position += Long.BYTES;
+    }
+
+    void putDouble(double value) throws IOException {
+        this.ensureRemaining(Double.BYTES);
+        this.buffer.putDouble(value);
+        this.position += Double.BYTES;
+    }
+
+    void putByte(byte value) throws IOException {
+        this.ensureRemaining(1);
+        this.buffer.put(value);
+        this.position++;
+    }
+
+    void putBytes(byte[] values) throws IOException {
+        for (byte value : values) this.putByte(value);
+    }
+
+    /**
+     * 書き込み済みのpositionの位置のlongを書き換える
+     */
+    void patchLong(long position, long value) throws IOException {
+        long bufferStart = this.position - this.buffer.position();
+        if (position >= bufferStart) {
+            this.buffer.putLong((int) (position - bufferStart), value);
+        } else {
+            ByteBuffer patch = ActorLogFormat.allocate(Long.BYTES).putLong(value);
+            patch.flip();
+            while (patch.hasRemaining()) position += this.channel.write(patch, position);
+        }
+    }
+
+    /**
+     * バッファの内容をファイルに書き込む
+     */
+    void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * バッファの内容を書き込み、ディスクに同期する
+     */
+    void sync() throws IOException {
+        this.flush();
+        this.channel.force(false);
+    }
+
+    /**
+     * バッファの内容を書き込んで閉じる
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (this.buffer.remaining() < length) this.flush();
+    }
+}
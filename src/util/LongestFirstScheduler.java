@@ -0,0 +1,87 @@
+package util;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * 推定コストの大きい順に処理を専用のForkJoinPoolで並列実行する
+ * <p>
+ * parallelStreamは要素をインデックスで分割するため、コストの大きい要素が偏ると一部のスレッドだけが遅れて終わる。
+ * 全要素をコストの降順に並べ、各ワーカーが空き次第次の要素を取る(LPT)ことで、最後に残る処理を小さいものにする
+ */
+public final class LongestFirstScheduler implements Closeable {
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    // 各ワーカーが処理を実行していた時間の累計(ns)
+    private final long[] busyTimes;
+    // runの経過時間の累計(ns)
+    private long elapsedTime;
+
+    /**
+     * @param parallelism ワーカー数、0なら利用可能なプロセッサ数
+     */
+    public LongestFirstScheduler(int parallelism) {
+        this.parallelism = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.busyTimes = new long[this.parallelism];
+    }
+
+    /**
+     * ids[i]をcosts[i]の大きい順にtaskで処理し、すべて終わるまで待つ
+     *
+     * @param ids   処理する要素のID(0以上)
+     * @param costs 各要素の推定コスト
+     * @param task  要素毎の処理
+     */
+    public void run(int[] ids, long[] costs, IntConsumer task) {
+        long startTime = System.nanoTime();
+        // 上位にコスト、下位にインデックスを詰めてソートし、降順に取り出す
+        long[] keys = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            keys[i] = (Math.min(costs[i], Integer.MAX_VALUE) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        AtomicInteger next = new AtomicInteger();
+        List<ForkJoinTask<?>> workers = new ArrayList<>(this.parallelism);
+        for (int worker = 0; worker < Math.min(this.parallelism, ids.length); worker++) {
+            int workerId = worker;
+            workers.add(this.pool.submit(() -> {
+                long workerStart = System.nanoTime();
+                int k;
+                while ((k = next.getAndIncrement()) < keys.length) {
+                    task.accept(ids[(int) keys[keys.length - 1 - k]]);
+                }
+                this.busyTimes[workerId] += System.nanoTime() - workerStart;
+            }));
+        }
+        // 例外はjoinで呼び出し元に伝わる
+        workers.forEach(ForkJoinTask::join);
+        this.elapsedTime += System.nanoTime() - startTime;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * 各ワーカーの稼働率(処理を実行していた時間 / runの経過時間)
+     */
+    public double[] getUtilizations() {
+        return Arrays.stream(this.busyTimes)
+                .mapToDouble(busyTime -> (this.elapsedTime == 0) ? 0 : (double) busyTime / this.elapsedTime)
+                .toArray();
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdown();
+    }
+}
@@ -0,0 +1,13 @@
+package util;
+
+/**
+ * サービス交換マッチング(DeferredAcceptance)の実行方法
+ */
+public enum MatchingMode {
+    // 未マッチの全Actorが一斉にプロポーズし、全提供Actorの売却先をソートし直すラウンドを繰り返す
+    ROUNDS,
+    // 未マッチのActorだけをキューで処理し、売却先は利得の最小ヒープで保持する、ROUNDSと同じマッチングになる
+    WORKLIST,
+    // サービス毎に独立したタスクとし、サービス内のラウンドも並列に実行する、ROUNDSと同じマッチングになる
+    PARALLEL
+}
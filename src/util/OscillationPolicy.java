@@ -0,0 +1,15 @@
+package util;
+
+/**
+ * 価格均衡ループで価格の周期的な振動を検出した時の扱い
+ */
+public enum OscillationPolicy {
+    // 検出したActorを報告するのみで、BALANCE_PRICE_MAX_COUNT回まで続ける
+    NONE,
+    // 全価格が以前の回と一致した時点で、以降も同じ周期を繰り返すので終了
+    STOP,
+    // 振動しているActorの価格を現在の価格に固定し、残りのActorで続ける
+    FREEZE,
+    // 振動しているActorの価格を直前の価格との中間(deltaPrice刻みの安い方)に固定し、残りのActorで続ける
+    DAMP
+}
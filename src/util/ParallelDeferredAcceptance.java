@@ -0,0 +1,100 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 並列DAアルゴリズム
+ * サービス同士のマッチングは互いに影響しないため、サービス毎に独立したタスクとしてFork/Joinプールで実行する
+ * <p>
+ * サービス内ではDeferredAcceptance.matching(ROUNDS)と同じラウンドを並列に実行する
+ * 1. 未マッチの顧客は並列に現在の第一希望を求める
+ * 2. プロポーズを提供Actor毎に顧客のID順で振り分ける(ソートによるので未マッチの顧客数にだけ比例する)
+ * 3. 提供Actor毎に並列にヒープへ入れる、各提供Actorは自分のヒープにだけ書き込むのでロックは不要
+ * 拒否された顧客と押し出された顧客がID順で次のラウンドの未マッチの顧客になる
+ * 保持の順位(seq)はラウンド順、ラウンド内は顧客のID順なので、スレッド数によらずROUNDSと同じマッチングになる
+ */
+public final class ParallelDeferredAcceptance {
+
+    private ParallelDeferredAcceptance() {
+    }
+
+    /**
+     * actorsのサービス交換マッチング
+     */
+    public static void matching(List<Actor> actors) {
+        if (actors.isEmpty()) return;
+        ActorStore store = actors.get(0).getStore();
+        // 各サービスはActorの自分のサービスの領域にだけ書き込む
+        IntStream.range(0, store.getConfig().getServiceCount())
+                .parallel()
+                .forEach(serviceId -> matching(actors, store, serviceId));
+    }
+
+    /**
+     * serviceIdのサービスのマッチング
+     */
+    static void matching(List<Actor> actors, ActorStore store, int serviceId) {
+        int actorCount = actors.size();
+        PreferenceTable preferences = PreferenceTable.build(store, actorCount, serviceId);
+        ProviderHeaps heaps = new ProviderHeaps(actorCount, store.getConfig().getMaxConsumers());
+        // 顧客を保持している提供ActorのID、未マッチは-1
+        int[] holderIds = new int[actorCount];
+        int seq = heaps.seed(actors, store, serviceId, holderIds);
+
+        int[] freeIds = IntStream.range(0, actorCount)
+                .filter(consumerId -> holderIds[consumerId] < 0)
+                .toArray();
+
+        while (freeIds.length > 0) {
+            int[] currentIds = freeIds;
+            int baseSeq = seq;
+            seq += currentIds.length;
+
+            // 現在の第一希望の選考の位置、選考リストが尽きた顧客は-1(未マッチのまま終了)
+            int[] proposals = IntStream.range(0, currentIds.length)
+                    .parallel()
+                    .map(k -> preferences.next(currentIds[k]))
+                    .toArray();
+
+            // (提供ActorのID, 顧客の位置)の順に並べて提供Actor毎に振り分け
+            long[] keys = IntStream.range(0, proposals.length)
+                    .filter(k -> proposals[k] >= 0)
+                    .mapToLong(k -> ((long) preferences.getProviderId(proposals[k]) << 32) | k)
+                    .toArray();
+            Arrays.parallelSort(keys);
+            int[] groupStarts = IntStream.rangeClosed(0, keys.length)
+                    .filter(g -> g == 0 || g == keys.length || (keys[g] >>> 32) != (keys[g - 1] >>> 32))
+                    .toArray();
+
+            // 提供Actor毎に並列にヒープへ入れ、拒否された顧客を記録
+            int[] rejectedIds = new int[keys.length];
+            IntStream.range(0, groupStarts.length - 1)
+                    .parallel()
+                    .forEach(n -> {
+                        for (int g = groupStarts[n]; g < groupStarts[n + 1]; g++) {
+                            int providerId = (int) (keys[g] >>> 32);
+                            int k = (int) keys[g];
+                            int consumerId = currentIds[k];
+                            int rejectedId = heaps.offer(providerId, consumerId, preferences.getProfit(proposals[k]), baseSeq + k);
+                            rejectedIds[g] = rejectedId;
+                            if (rejectedId == consumerId) continue;
+                            holderIds[consumerId] = providerId;
+                            if (rejectedId >= 0) holderIds[rejectedId] = -1;
+                        }
+                    });
+
+            // 拒否された顧客をID順にして次のラウンドへ
+            freeIds = Arrays.stream(rejectedIds)
+                    .filter(rejectedId -> rejectedId >= 0)
+                    .sorted()
+                    .toArray();
+        }
+
+        heaps.apply(actors, serviceId, holderIds);
+    }
+}
@@ -0,0 +1,100 @@
+package util;
+
+import java.io.Serializable;
+
+/**
+ * 購入先の選考希望リスト
+ * 提供ActorのIDと購入時利得をプリミティブ配列で保持し、次にプロポーズする位置をカーソルで示す
+ * <p>
+ * 生成時にはソートせず、カーソルが未選択の領域に入った時に残りから最大の1件だけを選択する
+ * 未選択の領域は最初に取り出す時にヒープ化するため、k件取り出すコストはO(n + k log n)
+ * 利得が等しい場合は元の並び順(市場範囲のActor、自給の順)を優先し、全件を安定ソートした場合と同じ順になる
+ */
+public final class PreferenceList implements Serializable {
+
+    private static final long serialVersionUID = 3320024093897090671L;
+
+    private final int[] providerIds;
+    private final double[] profits;
+    // 元の並び順
+    private final int[] orders;
+    private int cursor;
+
+    /**
+     * @param providerIds 提供ActorのID(元の並び順)、このリストが所有する
+     * @param profits     各提供Actorからの購入時利得、このリストが所有する
+     */
+    public PreferenceList(int[] providerIds, double[] profits) {
+        this.providerIds = providerIds;
+        this.profits = profits;
+        this.orders = new int[providerIds.length];
+        for (int i = 0; i < this.orders.length; i++) this.orders[i] = i;
+    }
+
+    public static PreferenceList empty() {
+        return new PreferenceList(new int[0], new double[0]);
+    }
+
+    public boolean isEmpty() {
+        return this.cursor >= this.providerIds.length;
+    }
+
+    /**
+     * 次の選考の提供ActorのIDを返してカーソルを進める
+     * 選考リストが尽きていれば-1
+     */
+    public int popProviderId() {
+        if (this.isEmpty()) return -1;
+        selectNext(this.providerIds, this.profits, this.orders, this.cursor, this.providerIds.length, this.cursor == 0);
+        return this.providerIds[this.cursor++];
+    }
+
+    /**
+     * [from, to)の選考リストのposition番目(絶対位置)に、未選択の[position, to)の中で最も順位の高い要素を移す
+     * 未選択の領域はtoの側を根としたヒープ(ヒープのh番目がto - 1 - h)で、取り出す度に1つ縮む
+     *
+     * @param isFirst 最初の取り出しならtrue、未選択の領域をヒープ化する
+     */
+    static void selectNext(int[] ids, double[] profits, int[] orders, int position, int to, boolean isFirst) {
+        int size = to - position;
+        if (isFirst) {
+            for (int h = size / 2 - 1; h >= 0; h--) {
+                siftDown(ids, profits, orders, to, size, h);
+            }
+        }
+        // 根(最大)をヒープの最後の要素と入れ替え、ヒープを縮めて根から整える
+        swap(ids, profits, orders, to - 1, position);
+        siftDown(ids, profits, orders, to, size - 1, 0);
+    }
+
+    private static void siftDown(int[] ids, double[] profits, int[] orders, int to, int size, int h) {
+        while (true) {
+            int child = 2 * h + 1;
+            if (child >= size) return;
+            if (child + 1 < size && isBetter(profits, orders, to - 2 - child, to - 1 - child)) child++;
+            if (!isBetter(profits, orders, to - 1 - child, to - 1 - h)) return;
+            swap(ids, profits, orders, to - 1 - child, to - 1 - h);
+            h = child;
+        }
+    }
+
+    /**
+     * i番目の順位がj番目より高い(利得が大きい、等しければ元の並び順が前)ならtrue
+     */
+    private static boolean isBetter(double[] profits, int[] orders, int i, int j) {
+        int compare = Double.compare(profits[i], profits[j]);
+        return compare > 0 || (compare == 0 && orders[i] < orders[j]);
+    }
+
+    private static void swap(int[] ids, double[] profits, int[] orders, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double profit = profits[i];
+        profits[i] = profits[j];
+        profits[j] = profit;
+        int order = orders[i];
+        orders[i] = orders[j];
+        orders[j] = order;
+    }
+}
@@ -0,0 +1,81 @@
+package util;
+
+import model.ActorStore;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * DAアルゴリズムで用いる、1つのサービスに関する全顧客の選考リスト
+ * 顧客毎に市場範囲のActor(ID昇順)、自給の順に並べ、次にプロポーズする位置をカーソルで保持する
+ * PreferenceListと同様にプロポーズする時に残りから最も利得の大きい1件だけを選択するため、
+ * 早くマッチングが決まる顧客の選考はソートしない
+ */
+final class PreferenceTable {
+
+    // 顧客consumerIdの選考はproviderIds[offsets[consumerId]..offsets[consumerId + 1])
+    private final int[] offsets;
+    private final int[] providerIds;
+    private final double[] profits;
+    // 顧客毎の元の並び順(利得が等しい場合の順位)
+    private final int[] orders;
+    private final int[] cursors;
+
+    private PreferenceTable(int[] offsets, int[] providerIds, double[] profits, int[] orders) {
+        this.offsets = offsets;
+        this.providerIds = providerIds;
+        this.profits = profits;
+        this.orders = orders;
+        this.cursors = Arrays.copyOf(offsets, offsets.length - 1);
+    }
+
+    /**
+     * 現在の価格でserviceIdのサービスの選考リストを生成
+     */
+    static PreferenceTable build(ActorStore store, int actorCount, int serviceId) {
+        int[] offsets = new int[actorCount + 1];
+        for (int consumerId = 0; consumerId < actorCount; consumerId++) {
+            offsets[consumerId + 1] = offsets[consumerId] + store.getMarketActorCount(consumerId) + 1;
+        }
+        int[] providerIds = new int[offsets[actorCount]];
+        double[] profits = new double[offsets[actorCount]];
+        int[] orders = new int[offsets[actorCount]];
+        // 各顧客は自分の領域にだけ書き込むので並列に生成できる
+        IntStream.range(0, actorCount)
+                .parallel()
+                .forEach(consumerId -> {
+                    int offset = offsets[consumerId];
+                    int marketActorCount = store.getMarketActorCount(consumerId);
+                    for (int i = 0; i < marketActorCount; i++) {
+                        int providerId = store.getMarketActorId(consumerId, i);
+                        providerIds[offset + i] = providerId;
+                        profits[offset + i] = ProfitKernel.calcProfit(store, providerId, consumerId, serviceId);
+                        orders[offset + i] = i;
+                    }
+                    providerIds[offset + marketActorCount] = consumerId;
+                    profits[offset + marketActorCount] = ProfitKernel.calcProfit(store, consumerId, consumerId, serviceId);
+                    orders[offset + marketActorCount] = marketActorCount;
+                });
+        return new PreferenceTable(offsets, providerIds, profits, orders);
+    }
+
+    /**
+     * 顧客consumerIdの次の選考の位置を返してカーソルを進める
+     * 選考リストが尽きていれば-1
+     */
+    int next(int consumerId) {
+        int cursor = this.cursors[consumerId];
+        int end = this.offsets[consumerId + 1];
+        if (cursor >= end) return -1;
+        PreferenceList.selectNext(this.providerIds, this.profits, this.orders, cursor, end, cursor == this.offsets[consumerId]);
+        return this.cursors[consumerId]++;
+    }
+
+    int getProviderId(int index) {
+        return this.providerIds[index];
+    }
+
+    double getProfit(int index) {
+        return this.profits[index];
+    }
+}
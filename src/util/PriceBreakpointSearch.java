@@ -0,0 +1,105 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ブレークポイント解析による売上最大価格の探索
+ * <p>
+ * 市場範囲の各Actorは、hostActorの価格があるしきい値(value - dist * moveCost - 自分抜きの購入時利得)を
+ * 超えた時点で売却先から外れるため、価格に対する売却先の集合は階段関数になる。
+ * 各Actorが売却先でいられる最大の価格をあらかじめ求め、その価格だけを評価することで
+ * 全価格を掃引せずにO(k log k)で売上最大の価格を求める。
+ */
+public final class PriceBreakpointSearch {
+
+    private PriceBreakpointSearch() {
+    }
+
+    /**
+     * minPriceからmaxPriceまでdeltaPrice刻みの価格の中で、serviceIdのサービスの売上が最大となる価格を探索
+     * 売上が同じ場合は安い価格を優先し、売上が正にならない場合はminPriceを返す(PriceSimulationの掃引と同じ)
+     *
+     * @param hostActor  価格を決めるActor
+     * @param serviceId  サービスID
+     * @param minPrice   最低価格
+     * @param maxPrice   最高価格
+     * @param deltaPrice 価格の刻み幅
+     * @return 売上最大の価格
+     */
+    public static int searchBestPrice(Actor hostActor, int serviceId, int minPrice, int maxPrice, int deltaPrice) {
+        int priceCount = (maxPrice - minPrice) / deltaPrice + 1;
+        int[] lastConsumerPriceIndexes = calcLastConsumerPriceIndexes(hostActor, serviceId, minPrice, deltaPrice, priceCount);
+        Arrays.sort(lastConsumerPriceIndexes);
+        int maxConsumers = hostActor.getConfig().getMaxConsumers();
+
+        int bestPrice = minPrice;
+        int bestPayoff = 0;
+        // 価格の安い順にブレークポイントを評価
+        for (int i = 0; i < lastConsumerPriceIndexes.length; i++) {
+            int priceIndex = lastConsumerPriceIndexes[i];
+            if (priceIndex < 0 || (i > 0 && priceIndex == lastConsumerPriceIndexes[i - 1])) continue;
+
+            // この価格で売却先になるのは、最大価格がこの価格以上のActor
+            // hostActor自身は市場範囲に含まれないため、売却先に自分が入ることはない
+            int consumerCount = Math.min(lastConsumerPriceIndexes.length - i, maxConsumers);
+            int price = minPrice + priceIndex * deltaPrice;
+            int payoff = consumerCount * price;
+            if (payoff > bestPayoff) {
+                bestPrice = price;
+                bestPayoff = payoff;
+            }
+        }
+        return bestPrice;
+    }
+
+    /**
+     * 市場範囲の各Actorについて、hostActorの売却先でいられる最大の価格のインデックスを計算
+     * 一度も売却先にならない場合は-1
+     */
+    private static int[] calcLastConsumerPriceIndexes(Actor hostActor, int serviceId, int minPrice, int deltaPrice, int priceCount) {
+        List<Actor> actors = hostActor.getContext().orElseThrow(IllegalStateException::new).getActors();
+        ActorStore store = hostActor.getStore();
+        int hostId = hostActor.getId();
+        double moveCost = store.getConfig().getMoveCost();
+        int[] lastConsumerPriceIndexes = new int[store.getMarketActorCount(hostId)];
+        for (int i = 0; i < lastConsumerPriceIndexes.length; i++) {
+            int marketActorId = store.getMarketActorId(hostId, i);
+            double selectedProfit = ActorUtil.calcSelectedProfitWithout(hostActor, actors.get(marketActorId), serviceId);
+
+            // 自分との交換による相手の利得は価格に対して単調減少なので、売却先でいられる最後の価格を二分探索
+            // 判定式はProfitKernel.calcProfitと同じ浮動小数点演算を用いる
+            double value = ProfitKernel.calcValue(store, hostId, marketActorId, serviceId);
+            double dist = ProfitKernel.calcDist(store, hostId, marketActorId);
+            lastConsumerPriceIndexes[i] = searchLastConsumerPriceIndex(value, dist, moveCost, selectedProfit, minPrice, deltaPrice, -1, priceCount);
+        }
+        return lastConsumerPriceIndexes;
+    }
+
+    /**
+     * 価格のインデックスlowでは売却先で、highでは売却先でないActorについて、売却先でいられる最大の価格のインデックスを二分探索
+     * lowが-1、highが価格数の場合は全範囲を探索する
+     */
+    static int searchLastConsumerPriceIndex(double value, double dist, double moveCost, double selectedProfit,
+                                            int minPrice, int deltaPrice, int low, int high) {
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (isConsumer(value, dist, moveCost, selectedProfit, minPrice + mid * deltaPrice)) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * priceで売却先になるか(自分との交換による相手の利得が、自分抜きの購入時利得を上回るか)
+     */
+    static boolean isConsumer(double value, double dist, double moveCost, double selectedProfit, int price) {
+        return ActorUtil.calcProfit(value, price, dist, moveCost) > selectedProfit;
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+/**
+ * 価格均衡ループの全価格の周期的な振動(リミットサイクル)を検出する
+ * <p>
+ * 各回の売上最大の価格は直前の全価格のみで決まるので、全価格が以前の回と一致すれば以降も同じ周期を繰り返す。
+ * 直近history回分の各Actorの価格のハッシュと、それを合わせた全価格のハッシュを保持し、
+ * 全価格のハッシュが2回以上history回以下前と一致した時に周期とみなす(ハッシュが一致すれば同じ価格とみなす)
+ */
+public final class PriceCycleDetector {
+
+    private final int actorCount;
+    private final int serviceCount;
+    private final int history;
+    // [回 % (history + 1)][actorId] 各Actorの価格のハッシュ
+    private final long[][] actorHashes;
+    // [回 % (history + 1)] 全価格のハッシュ
+    private final long[] stateHashes;
+    // 記録した回数
+    private int count;
+
+    /**
+     * @param actorCount   Actorの数
+     * @param serviceCount サービスの数
+     * @param history      保持する履歴の回数、この回数以下の周期を検出する
+     */
+    public PriceCycleDetector(int actorCount, int serviceCount, int history) {
+        this.actorCount = actorCount;
+        this.serviceCount = serviceCount;
+        this.history = history;
+        this.actorHashes = new long[history + 1][actorCount];
+        this.stateHashes = new long[history + 1];
+    }
+
+    /**
+     * 履歴を消す(価格を外から変更した後は以前の回と比較できない)
+     */
+    public void reset() {
+        this.count = 0;
+    }
+
+    /**
+     * 今回の全価格を記録し、周期を検出
+     *
+     * @param prices 全価格 [actorId * serviceCount + serviceId]
+     * @return 全価格が一致した最も近い回までの回数(周期)、なければ0
+     */
+    public int update(int[] prices) {
+        int slot = this.count % (this.history + 1);
+        long[] hashes = this.actorHashes[slot];
+        long stateHash = 0;
+        for (int actorId = 0; actorId < this.actorCount; actorId++) {
+            long hash = actorId;
+            for (int i = actorId * this.serviceCount; i < (actorId + 1) * this.serviceCount; i++) {
+                hash = mix(hash * 31 + prices[i]);
+            }
+            hashes[actorId] = hash;
+            // 順序によらない和で全価格のハッシュにする
+            stateHash += mix(hash);
+        }
+        this.stateHashes[slot] = stateHash;
+        this.count++;
+
+        // 周期1は価格が変化していない(均衡した)場合なので含めない
+        for (int period = 2; period <= Math.min(this.history, this.count - 1); period++) {
+            if (this.stateHashes[(this.count - 1 - period) % (this.history + 1)] == stateHash) return period;
+        }
+        return 0;
+    }
+
+    /**
+     * 直近period回の間に価格が変化したActor(周期を検出した時に振動しているActor)
+     *
+     * @param period updateが返した周期
+     * @return [actorId] 振動しているか
+     */
+    public boolean[] findOscillatingActors(int period) {
+        boolean[] oscillating = new boolean[this.actorCount];
+        long[] latest = this.actorHashes[(this.count - 1) % (this.history + 1)];
+        for (int back = 1; back < period; back++) {
+            long[] hashes = this.actorHashes[(this.count - 1 - back) % (this.history + 1)];
+            for (int actorId = 0; actorId < this.actorCount; actorId++) {
+                if (hashes[actorId] != latest[actorId]) oscillating[actorId] = true;
+            }
+        }
+        return oscillating;
+    }
+
+    /**
+     * 64bitのハッシュの攪拌(SplitMix64の最終段)
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
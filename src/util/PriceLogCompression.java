@@ -0,0 +1,11 @@
+package util;
+
+/**
+ * 価格のログ(PriceLogFormat)のブロックの圧縮方法
+ */
+public enum PriceLogCompression {
+    // 圧縮しない
+    NONE,
+    // java.util.zipのDeflate(BEST_SPEED)
+    DEFLATE
+}
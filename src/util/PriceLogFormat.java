@@ -0,0 +1,46 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * 価格均衡ループの価格のログのバイナリ形式
+ * 数値はすべてリトルエンディアン
+ * <pre>
+ * ヘッダ(固定長HEADER_LENGTHバイト)
+ *   byte[4] MAGIC, int version, int actorCount, int serviceCount, int compression(PriceLogCompressionの序数), 残りは0
+ * 価格均衡ループ1回分のブロック × 回数
+ *   int changeCount, int storedLength, byte[storedLength] 変化した組(compressionで圧縮)
+ *   変化した組(圧縮前): int[changeCount] actorId, int[changeCount] serviceId, int[changeCount] price
+ * </pre>
+ * 各回は直前の回から価格が変化した組だけを記録する(最初の回は全価格が0の状態から)
+ * 追記するだけの形式なので、書き込み途中で終了したファイルも最後の完全な1回分まで読める
+ * version 1のファイル(ヘッダはV1_HEADER_LENGTHバイト、各回は全Actorの価格 int[actorCount * serviceCount])も読める
+ */
+public final class PriceLogFormat {
+
+    public static final int VERSION = 2;
+    public static final int HEADER_LENGTH = 32;
+    public static final int V1_HEADER_LENGTH = 16;
+    public static final int BLOCK_HEADER_LENGTH = 8;
+
+    static final byte[] MAGIC = {'S', 'S', 'P', 'L'};
+
+    private PriceLogFormat() {
+    }
+
+    /**
+     * ファイルがこの形式で書かれているか(先頭がMAGICか)
+     */
+    public static boolean isPriceLog(String fileName) {
+        try (InputStream inputStream = Files.newInputStream(Paths.get(fileName))) {
+            byte[] head = new byte[MAGIC.length];
+            return inputStream.read(head) == head.length && Arrays.equals(head, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
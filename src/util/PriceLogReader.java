@@ -0,0 +1,140 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * バイナリ形式(PriceLogFormat)の価格のログを読み込む
+ */
+public final class PriceLogReader {
+
+    private PriceLogReader() {
+    }
+
+    /**
+     * 全回数の価格の遷移を読み込む
+     */
+    public static PriceTrace readAll(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer header = ActorLogFormat.allocate(PriceLogFormat.V1_HEADER_LENGTH);
+            ActorLogFormat.readFully(channel, header, 0);
+            if (!Arrays.equals(ActorLogFormat.getBytes(header, PriceLogFormat.MAGIC.length), PriceLogFormat.MAGIC)) {
+                throw new IOException("not a price log: " + fileName);
+            }
+            int version = header.getInt();
+            int actorCount = header.getInt();
+            int serviceCount = header.getInt();
+            if (version == 1) return readV1(channel, actorCount, serviceCount);
+            if (version != PriceLogFormat.VERSION) throw new IOException("unsupported version: " + version);
+
+            ByteBuffer compressionBuffer = ActorLogFormat.allocate(Integer.BYTES);
+            ActorLogFormat.readFully(channel, compressionBuffer, PriceLogFormat.V1_HEADER_LENGTH);
+            int compressionId = compressionBuffer.getInt();
+            if (compressionId < 0 || compressionId >= PriceLogCompression.values().length) {
+                throw new IOException("unsupported compression: " + compressionId);
+            }
+            PriceLogCompression compression = PriceLogCompression.values()[compressionId];
+            return readBlocks(channel, actorCount, serviceCount, compression);
+        }
+    }
+
+    /**
+     * 最初のiterationCount回分のブロックの末尾の位置(version 2以降のファイルのみ)
+     */
+    static long findIterationsEnd(FileChannel channel, int iterationCount) throws IOException {
+        long size = channel.size();
+        long position = PriceLogFormat.HEADER_LENGTH;
+        ByteBuffer blockHeader = ActorLogFormat.allocate(PriceLogFormat.BLOCK_HEADER_LENGTH);
+        for (int i = 0; i < iterationCount; i++) {
+            if (position + PriceLogFormat.BLOCK_HEADER_LENGTH > size) throw new IOException("price log has only " + i + " iterations, needs " + iterationCount);
+            blockHeader.clear();
+            ActorLogFormat.readFully(channel, blockHeader, position);
+            blockHeader.getInt();
+            position += PriceLogFormat.BLOCK_HEADER_LENGTH + blockHeader.getInt();
+        }
+        if (position > size) throw new IOException("price log has only " + (iterationCount - 1) + " iterations, needs " + iterationCount);
+        return position;
+    }
+
+    /**
+     * 変化した組のブロックを読み込む
+     * 途中で切れているブロックは除く
+     */
+    private static PriceTrace readBlocks(FileChannel channel, int actorCount, int serviceCount, PriceLogCompression compression) throws IOException {
+        PriceTrace trace = new PriceTrace(actorCount, serviceCount);
+        long size = channel.size();
+        long position = PriceLogFormat.HEADER_LENGTH;
+        ByteBuffer blockHeader = ActorLogFormat.allocate(PriceLogFormat.BLOCK_HEADER_LENGTH);
+        ByteBuffer changes = ActorLogFormat.allocate(actorCount * serviceCount * Integer.BYTES * 3);
+        Inflater inflater = compression == PriceLogCompression.DEFLATE ? new Inflater() : null;
+        try {
+            while (position + PriceLogFormat.BLOCK_HEADER_LENGTH <= size) {
+                blockHeader.clear();
+                ActorLogFormat.readFully(channel, blockHeader, position);
+                int changeCount = blockHeader.getInt();
+                int storedLength = blockHeader.getInt();
+                long end = position + PriceLogFormat.BLOCK_HEADER_LENGTH + storedLength;
+                if (end > size) break;
+
+                ByteBuffer stored = ActorLogFormat.allocate(storedLength);
+                ActorLogFormat.readFully(channel, stored, position + PriceLogFormat.BLOCK_HEADER_LENGTH);
+                changes.clear();
+                changes.limit(changeCount * Integer.BYTES * 3);
+                if (inflater != null) {
+                    inflate(inflater, stored, changes);
+                } else {
+                    if (storedLength != changes.limit()) throw new IOException("broken price log block at " + position);
+                    changes.put(stored);
+                    changes.flip();
+                }
+                int[] actorIds = ActorLogFormat.getInts(changes, changeCount);
+                int[] serviceIds = ActorLogFormat.getInts(changes, changeCount);
+                int[] prices = ActorLogFormat.getInts(changes, changeCount);
+                trace.addIteration(actorIds, serviceIds, prices, changeCount);
+                position = end;
+            }
+        } finally {
+            if (inflater != null) inflater.end();
+        }
+        return trace;
+    }
+
+    private static void inflate(Inflater inflater, ByteBuffer stored, ByteBuffer changes) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored.array(), 0, stored.limit());
+        try {
+            int length = 0;
+            while (length < changes.limit() && !inflater.finished()) {
+                int read = inflater.inflate(changes.array(), length, changes.limit() - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += read;
+            }
+            if (length != changes.limit()) throw new IOException("broken price log block");
+            changes.position(0);
+        } catch (DataFormatException e) {
+            throw new IOException("broken price log block", e);
+        }
+    }
+
+    /**
+     * version 1(各回が全Actorの価格)のファイルを読み込む
+     */
+    private static PriceTrace readV1(FileChannel channel, int actorCount, int serviceCount) throws IOException {
+        PriceTrace trace = new PriceTrace(actorCount, serviceCount);
+        int iterationLength = actorCount * serviceCount * Integer.BYTES;
+        long iterationCount = iterationLength == 0 ? 0 : (channel.size() - PriceLogFormat.V1_HEADER_LENGTH) / iterationLength;
+        ByteBuffer buffer = ActorLogFormat.allocate(iterationLength);
+        for (long i = 0; i < iterationCount; i++) {
+            buffer.clear();
+            ActorLogFormat.readFully(channel, buffer, PriceLogFormat.V1_HEADER_LENGTH + i * iterationLength);
+            trace.addIteration(ActorLogFormat.getInts(buffer, actorCount * serviceCount));
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,155 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * 価格均衡ループの価格のログをバイナリ形式(PriceLogFormat)で書き込む
+ * 直前の回から価格が変化した組だけを書き込む
+ */
+public final class PriceLogWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final int actorCount;
+    private final int serviceCount;
+    private final PriceLogCompression compression;
+    // 直前の回の全価格
+    private final int[] lastPrices;
+    // 圧縮前の変化した組
+    private final ByteBuffer changes;
+    private final ByteBuffer blockHeader;
+    private final Deflater deflater;
+    private byte[] compressed;
+
+    public PriceLogWriter(String fileName, int actorCount, int serviceCount, PriceLogCompression compression) throws IOException {
+        this(FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                actorCount, serviceCount, compression);
+
+        ByteBuffer header = ActorLogFormat.allocate(PriceLogFormat.HEADER_LENGTH);
+        header.put(PriceLogFormat.MAGIC);
+        header.putInt(PriceLogFormat.VERSION);
+        header.putInt(actorCount);
+        header.putInt(serviceCount);
+        header.putInt(compression.ordinal());
+        header.position(PriceLogFormat.HEADER_LENGTH);
+        header.flip();
+        this.write(header);
+    }
+
+    private PriceLogWriter(FileChannel channel, int actorCount, int serviceCount, PriceLogCompression compression) {
+        this.channel = channel;
+        this.actorCount = actorCount;
+        this.serviceCount = serviceCount;
+        this.compression = compression;
+        this.lastPrices = new int[actorCount * serviceCount];
+        this.changes = ActorLogFormat.allocate(actorCount * serviceCount * Integer.BYTES * 3);
+        this.blockHeader = ActorLogFormat.allocate(PriceLogFormat.BLOCK_HEADER_LENGTH);
+        this.deflater = compression == PriceLogCompression.DEFLATE ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.compressed = new byte[1024];
+    }
+
+    /**
+     * 既存のログの先頭iterationCount回分を残して追記するWriterを開く(中断したシミュレーションの再開用)
+     * 書き込み途中で終了したファイルでもよく、それ以降の回は削除する
+     */
+    public static PriceLogWriter openAppend(String fileName, int iterationCount) throws IOException {
+        PriceTrace trace = PriceLogReader.readAll(fileName);
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ActorLogFormat.allocate(PriceLogFormat.HEADER_LENGTH);
+            ActorLogFormat.readFully(channel, header, 0);
+            header.position(PriceLogFormat.MAGIC.length);
+            int version = header.getInt();
+            if (version != PriceLogFormat.VERSION) throw new IOException("cannot append to version " + version + ": " + fileName);
+            header.position(header.position() + Integer.BYTES * 2);
+            PriceLogCompression compression = PriceLogCompression.values()[header.getInt()];
+
+            long end = PriceLogReader.findIterationsEnd(channel, iterationCount);
+            channel.truncate(end);
+            channel.position(end);
+            PriceLogWriter writer = new PriceLogWriter(channel, trace.getActorCount(), trace.getServiceCount(), compression);
+            for (int i = 0; i < iterationCount; i++) trace.applyIteration(i, writer.lastPrices);
+            return writer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 書き込み済みの回をディスクに同期する
+     */
+    public void sync() throws IOException {
+        this.channel.force(false);
+    }
+
+    /**
+     * 価格均衡ループ1回分の価格を追記
+     *
+     * @param prices 全Actorの価格 [actorId * serviceCount + serviceId]
+     */
+    public void writeIteration(int[] prices) throws IOException {
+        if (prices.length != this.actorCount * this.serviceCount) {
+            throw new IllegalArgumentException("prices must have " + this.actorCount * this.serviceCount + " values: " + prices.length);
+        }
+        int changeCount = 0;
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] != this.lastPrices[i]) changeCount++;
+        }
+        // 列毎に書き込む(同じ列の値は近く、圧縮が効きやすい)
+        this.changes.clear();
+        int actorIdStart = 0;
+        int serviceIdStart = changeCount * Integer.BYTES;
+        int priceStart = changeCount * Integer.BYTES * 2;
+        int n = 0;
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] == this.lastPrices[i]) continue;
+            this.changes.putInt(actorIdStart + n * Integer.BYTES, i / this.serviceCount);
+            this.changes.putInt(serviceIdStart + n * Integer.BYTES, i % this.serviceCount);
+            this.changes.putInt(priceStart + n * Integer.BYTES, prices[i]);
+            this.lastPrices[i] = prices[i];
+            n++;
+        }
+        this.changes.limit(changeCount * Integer.BYTES * 3);
+
+        ByteBuffer stored = this.compression == PriceLogCompression.DEFLATE ? this.deflate(this.changes) : this.changes;
+        this.blockHeader.clear();
+        this.blockHeader.putInt(changeCount);
+        this.blockHeader.putInt(stored.remaining());
+        this.blockHeader.flip();
+        this.write(this.blockHeader);
+        this.write(stored);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.channel.close();
+        } finally {
+            if (this.deflater != null) this.deflater.end();
+        }
+    }
+
+    private ByteBuffer deflate(ByteBuffer input) {
+        this.deflater.reset();
+        this.deflater.setInput(input.array(), 0, input.limit());
+        this.deflater.finish();
+        int length = 0;
+        while (!this.deflater.finished()) {
+            if (length == this.compressed.length) this.compressed = Arrays.copyOf(this.compressed, length * 2);
+            length += this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+        }
+        return ByteBuffer.wrap(this.compressed, 0, length);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) this.channel.write(buffer);
+    }
+}
@@ -0,0 +1,15 @@
+package util;
+
+/**
+ * 売上最大となる価格の探索方法
+ */
+public enum PriceSearchMode {
+    // minPriceからmaxPriceまでdeltaPrice刻みで全価格をシミュレーション
+    SWEEP,
+    // 売却先が切り替わる価格(ブレークポイント)のみを評価、SWEEPと同じ結果になる
+    BREAKPOINT,
+    // BREAKPOINTを1刻みの価格で評価
+    CONTINUOUS,
+    // 現在の価格を起点に窓を広げながら評価、SWEEPと同じ結果になる
+    WARM_START
+}
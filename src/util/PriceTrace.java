@@ -0,0 +1,138 @@
+package util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 価格均衡ループの価格の遷移
+ * 各回で価格が変化した(actorId, serviceId, price)の組だけをプリミティブ配列で保持する
+ * 最初の回は全価格が0の状態からの変化として記録する
+ */
+public final class PriceTrace {
+
+    private final int actorCount;
+    private final int serviceCount;
+    // 各回の変化の先頭位置 [回数 + 1]
+    private int[] offsets;
+    private int[] actorIds;
+    private int[] serviceIds;
+    private int[] prices;
+    private int iterationCount;
+    // 最後の回の全価格 [actorId * serviceCount + serviceId]
+    private final int[] lastPrices;
+
+    PriceTrace(int actorCount, int serviceCount) {
+        this.actorCount = actorCount;
+        this.serviceCount = serviceCount;
+        this.offsets = new int[16];
+        this.actorIds = new int[actorCount * serviceCount];
+        this.serviceIds = new int[actorCount * serviceCount];
+        this.prices = new int[actorCount * serviceCount];
+        this.lastPrices = new int[actorCount * serviceCount];
+    }
+
+    /**
+     * 以前の形式([回数][actorId][serviceId]の価格)から生成
+     */
+    public static PriceTrace of(List<List<List<Integer>>> pricesListList) {
+        int actorCount = pricesListList.isEmpty() ? 0 : pricesListList.get(0).size();
+        int serviceCount = actorCount == 0 ? 0 : pricesListList.get(0).get(0).size();
+        PriceTrace trace = new PriceTrace(actorCount, serviceCount);
+        for (List<List<Integer>> pricesList : pricesListList) {
+            trace.addIteration(pricesList.stream()
+                    .flatMap(List::stream)
+                    .mapToInt(Integer::intValue)
+                    .toArray());
+        }
+        return trace;
+    }
+
+    public int getActorCount() {
+        return this.actorCount;
+    }
+
+    public int getServiceCount() {
+        return this.serviceCount;
+    }
+
+    public int getIterationCount() {
+        return this.iterationCount;
+    }
+
+    /**
+     * iteration回目に価格が変化した組の数
+     */
+    public int getChangeCount(int iteration) {
+        return this.offsets[iteration + 1] - this.offsets[iteration];
+    }
+
+    /**
+     * iteration回目の変化をpricesに適用する
+     * 0回目から順に適用すると、pricesは各回の全価格になる
+     *
+     * @param prices 直前の回の全価格 [actorId * serviceCount + serviceId]、書き換える
+     */
+    public void applyIteration(int iteration, int[] prices) {
+        for (int i = this.offsets[iteration]; i < this.offsets[iteration + 1]; i++) {
+            prices[this.actorIds[i] * this.serviceCount + this.serviceIds[i]] = this.prices[i];
+        }
+    }
+
+    /**
+     * 全価格から直前の回との差分を求めて1回分を追加
+     *
+     * @param prices 全価格 [actorId * serviceCount + serviceId]
+     */
+    void addIteration(int[] prices) {
+        if (prices.length != this.lastPrices.length) {
+            throw new IllegalArgumentException("prices must have " + this.lastPrices.length + " values: " + prices.length);
+        }
+        int changeCount = 0;
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] != this.lastPrices[i]) changeCount++;
+        }
+        int start = this.reserve(changeCount);
+        int position = start;
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] != this.lastPrices[i]) {
+                this.actorIds[position] = i / this.serviceCount;
+                this.serviceIds[position] = i % this.serviceCount;
+                this.prices[position] = prices[i];
+                position++;
+            }
+        }
+        System.arraycopy(prices, 0, this.lastPrices, 0, prices.length);
+        this.offsets[++this.iterationCount] = position;
+    }
+
+    /**
+     * 変化した組を列毎に指定して1回分を追加
+     */
+    void addIteration(int[] actorIds, int[] serviceIds, int[] prices, int changeCount) {
+        int position = this.reserve(changeCount);
+        System.arraycopy(actorIds, 0, this.actorIds, position, changeCount);
+        System.arraycopy(serviceIds, 0, this.serviceIds, position, changeCount);
+        System.arraycopy(prices, 0, this.prices, position, changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            this.lastPrices[actorIds[i] * this.serviceCount + serviceIds[i]] = prices[i];
+        }
+        this.offsets[++this.iterationCount] = position + changeCount;
+    }
+
+    /**
+     * changeCount個分の領域を確保し、追加する位置を返す
+     */
+    private int reserve(int changeCount) {
+        if (this.iterationCount + 2 > this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+        }
+        int start = this.offsets[this.iterationCount];
+        if (start + changeCount > this.prices.length) {
+            int capacity = Math.max(start + changeCount, this.prices.length * 2);
+            this.actorIds = Arrays.copyOf(this.actorIds, capacity);
+            this.serviceIds = Arrays.copyOf(this.serviceIds, capacity);
+            this.prices = Arrays.copyOf(this.prices, capacity);
+        }
+        return start;
+    }
+}
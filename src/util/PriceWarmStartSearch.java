@@ -0,0 +1,113 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 前回の価格を起点とした売上最大価格の探索
+ * <p>
+ * 価格均衡ループでは各Actorの売上最大の価格は前回から大きく動かないことが多い。
+ * 前回の価格以上の範囲は、その価格で売却先のActorだけを二分探索して正確に評価し、
+ * 前回の価格より下は窓を倍々に広げながら評価する。
+ * 窓より安い価格の売上の上界(売却先になり得るActorの数 × 窓の直下の価格)が窓内の最大の売上を下回った時点で終了し、
+ * 下回らなければ窓が全範囲に広がり、PriceBreakpointSearchと同じ評価になる。
+ * どちらの場合もPriceBreakpointSearchと同じ価格を返す
+ */
+public final class PriceWarmStartSearch {
+
+    private PriceWarmStartSearch() {
+    }
+
+    /**
+     * minPriceからmaxPriceまでdeltaPrice刻みの価格の中で、serviceIdのサービスの売上が最大となる価格を、hostActorの現在の価格を起点に探索
+     * 売上が同じ場合は安い価格を優先し、売上が正にならない場合はminPriceを返す(PriceBreakpointSearchと同じ)
+     *
+     * @param hostActor  価格を決めるActor
+     * @param serviceId  サービスID
+     * @param minPrice   最低価格
+     * @param maxPrice   最高価格
+     * @param deltaPrice 価格の刻み幅
+     * @return 売上最大の価格
+     */
+    public static int searchBestPrice(Actor hostActor, int serviceId, int minPrice, int maxPrice, int deltaPrice) {
+        List<Actor> actors = hostActor.getContext().orElseThrow(IllegalStateException::new).getActors();
+        ActorStore store = hostActor.getStore();
+        int hostId = hostActor.getId();
+        double moveCost = store.getConfig().getMoveCost();
+        int maxConsumers = hostActor.getConfig().getMaxConsumers();
+        int priceCount = (maxPrice - minPrice) / deltaPrice + 1;
+        int start = Math.max(0, Math.min(priceCount - 1, (hostActor.getPrice(serviceId) - minPrice) / deltaPrice));
+
+        int marketActorCount = store.getMarketActorCount(hostId);
+        double[] values = new double[marketActorCount];
+        double[] dists = new double[marketActorCount];
+        double[] selectedProfits = new double[marketActorCount];
+        // 売却先でいられる最大の価格のインデックスが分かったActorの分(以降はlastConsumerPriceIndexesの先頭knownCount個)
+        int[] lastConsumerPriceIndexes = new int[marketActorCount];
+        int knownCount = 0;
+        // 最大の価格のインデックスがlow未満のActor
+        int[] unknown = new int[marketActorCount];
+        int unknownCount = 0;
+        // 最低価格で売却先になるActorの数(窓より安い価格の売却先の数の上限)
+        int reachableCount = 0;
+
+        for (int i = 0; i < marketActorCount; i++) {
+            int marketActorId = store.getMarketActorId(hostId, i);
+            // 判定式はPriceBreakpointSearchと同じ浮動小数点演算を用いる
+            values[i] = ProfitKernel.calcValue(store, hostId, marketActorId, serviceId);
+            dists[i] = ProfitKernel.calcDist(store, hostId, marketActorId);
+            selectedProfits[i] = ActorUtil.calcSelectedProfitWithout(hostActor, actors.get(marketActorId), serviceId);
+            if (!PriceBreakpointSearch.isConsumer(values[i], dists[i], moveCost, selectedProfits[i], minPrice)) continue;
+            reachableCount++;
+
+            if (PriceBreakpointSearch.isConsumer(values[i], dists[i], moveCost, selectedProfits[i], minPrice + start * deltaPrice)) {
+                lastConsumerPriceIndexes[knownCount++] = PriceBreakpointSearch.searchLastConsumerPriceIndex(
+                        values[i], dists[i], moveCost, selectedProfits[i], minPrice, deltaPrice, start, priceCount);
+            } else {
+                unknown[unknownCount++] = i;
+            }
+        }
+
+        int low = start;
+        int radius = 1;
+        while (true) {
+            // low以上の価格は売却先の集合が確定しているので、ブレークポイントで正確に評価
+            int[] known = Arrays.copyOf(lastConsumerPriceIndexes, knownCount);
+            Arrays.sort(known);
+            int bestPrice = minPrice;
+            int bestPayoff = 0;
+            for (int i = 0; i < known.length; i++) {
+                if (i > 0 && known[i] == known[i - 1]) continue;
+                int price = minPrice + known[i] * deltaPrice;
+                int payoff = Math.min(known.length - i, maxConsumers) * price;
+                if (payoff > bestPayoff) {
+                    bestPrice = price;
+                    bestPayoff = payoff;
+                }
+            }
+            // 窓より安い価格では売上がbestPayoffを超えられなければ確定(同じ売上なら安い価格が優先されるので等号は含めない)
+            if (low == 0 || bestPayoff > Math.min(reachableCount, maxConsumers) * (minPrice + (low - 1) * deltaPrice)) {
+                return bestPrice;
+            }
+
+            // 窓を広げ、新たに窓に入ったActorの最大の価格を窓の中で二分探索
+            int nextLow = Math.max(0, start - radius);
+            int remaining = 0;
+            for (int j = 0; j < unknownCount; j++) {
+                int i = unknown[j];
+                if (PriceBreakpointSearch.isConsumer(values[i], dists[i], moveCost, selectedProfits[i], minPrice + nextLow * deltaPrice)) {
+                    lastConsumerPriceIndexes[knownCount++] = PriceBreakpointSearch.searchLastConsumerPriceIndex(
+                            values[i], dists[i], moveCost, selectedProfits[i], minPrice, deltaPrice, nextLow, low);
+                } else {
+                    unknown[remaining++] = i;
+                }
+            }
+            unknownCount = remaining;
+            low = nextLow;
+            radius *= 2;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package util;
+
+import model.ActorStore;
+
+/**
+ * 利得計算のカーネル
+ * ActorStoreの配列をIDで直接参照し、呼び出しごとのオブジェクト生成を行わない
+ * ActorUtil.calcProfitと同じ浮動小数点演算で計算する
+ */
+public final class ProfitKernel {
+
+    private ProfitKernel() {
+    }
+
+    /**
+     * 現在の価格での利得計算
+     *
+     * @param store      ストア
+     * @param providerId 提供ActorのID
+     * @param consumerId 顧客ActorのID
+     * @param serviceId  サービスID
+     * @return 利得
+     */
+    public static double calcProfit(ActorStore store, int providerId, int consumerId, int serviceId) {
+        double value = calcValue(store, providerId, consumerId, serviceId);
+        // 自給の場合は価格、距離ともに0
+        if (providerId == consumerId) {
+            return ActorUtil.calcProfit(value, 0, 0, store.getConfig().getMoveCost());
+        }
+        return ActorUtil.calcProfit(value, store.getPrice(providerId, serviceId), calcDist(store, providerId, consumerId), store.getConfig().getMoveCost());
+    }
+
+    /**
+     * 提供Actorの価格をpriceとした時の利得計算
+     *
+     * @param store      ストア
+     * @param providerId 提供ActorのID
+     * @param consumerId 顧客ActorのID(提供Actorとは異なる)
+     * @param serviceId  サービスID
+     * @param price      提供Actorの価格
+     * @return 利得
+     */
+    public static double calcProfit(ActorStore store, int providerId, int consumerId, int serviceId, int price) {
+        double value = calcValue(store, providerId, consumerId, serviceId);
+        return ActorUtil.calcProfit(value, price, calcDist(store, providerId, consumerId), store.getConfig().getMoveCost());
+    }
+
+    /**
+     * 価値計算
+     */
+    public static double calcValue(ActorStore store, int providerId, int consumerId, int serviceId) {
+        return store.dotCapabilityFeature(providerId, consumerId, serviceId);
+    }
+
+    /**
+     * 距離計算
+     */
+    public static double calcDist(ActorStore store, int actorIdA, int actorIdB) {
+        return Math.sqrt(store.calcDistSquared(actorIdA, actorIdB));
+    }
+}
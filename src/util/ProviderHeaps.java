@@ -0,0 +1,154 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DAアルゴリズムで用いる、1つのサービスに関する全提供Actorの保持している顧客
+ * 提供Actor毎に顧客の購入時利得をキーとした容量maxConsumersの最小ヒープで管理する
+ * 利得が等しい顧客は先に保持した(seqが小さい)方を上位とする
+ * <p>
+ * 提供Actorのヒープは互いに独立なので、異なる提供Actorへのofferは並列に実行できる
+ */
+final class ProviderHeaps {
+
+    private final int capacity;
+    // providerIdのヒープは[providerId * capacity, providerId * capacity + sizes[providerId])
+    private final int[] ids;
+    private final double[] profits;
+    private final int[] seqs;
+    private final int[] sizes;
+
+    ProviderHeaps(int actorCount, int capacity) {
+        this.capacity = capacity;
+        this.ids = new int[actorCount * capacity];
+        this.profits = new double[actorCount * capacity];
+        this.seqs = new int[actorCount * capacity];
+        this.sizes = new int[actorCount];
+    }
+
+    /**
+     * 前回までの売却先を保持済みの顧客としてヒープに入れる
+     * 売却先の順に現在の価格での利得とseqを付ける
+     *
+     * @param holderIds 顧客を保持している提供ActorのIDを書き込む配列、未マッチは-1
+     * @return 次に使うseq
+     */
+    int seed(List<Actor> actors, ActorStore store, int serviceId, int[] holderIds) {
+        Arrays.fill(holderIds, -1);
+        int seq = 0;
+        for (int providerId = 0; providerId < actors.size(); providerId++) {
+            for (int consumerId : actors.get(providerId).getConsumerActorIdList(serviceId)) {
+                if (holderIds[consumerId] >= 0) continue;
+                double profit = ProfitKernel.calcProfit(store, providerId, consumerId, serviceId);
+                int rejectedId = this.offer(providerId, consumerId, profit, seq++);
+                if (rejectedId == consumerId) continue;
+                holderIds[consumerId] = providerId;
+                if (rejectedId >= 0) holderIds[rejectedId] = -1;
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * 提供Actor(providerId)のヒープに顧客をプロポーズさせる
+     *
+     * @return 拒否された顧客のID(プロポーズした顧客自身または押し出された顧客)、空きに入った場合は-1
+     */
+    int offer(int providerId, int consumerId, double profit, int seq) {
+        int base = providerId * this.capacity;
+        int size = this.sizes[providerId];
+        if (size < this.capacity) {
+            this.sizes[providerId]++;
+            this.siftUp(base, size, consumerId, profit, seq);
+            return -1;
+        }
+        // 利得が等しい場合は先に保持した顧客が残る
+        if (this.capacity == 0 || Double.compare(profit, this.profits[base]) <= 0) {
+            return consumerId;
+        }
+        int rejectedId = this.ids[base];
+        this.siftDown(base, size, consumerId, profit, seq);
+        return rejectedId;
+    }
+
+    /**
+     * 保持している顧客を売却先として各Actorに反映し、マッチング情報を更新
+     * 売却先は利得の降順(limitAndUpdateConsumersIdと同じ順)
+     */
+    void apply(List<Actor> actors, int serviceId, int[] holderIds) {
+        for (int providerId = 0; providerId < actors.size(); providerId++) {
+            actors.get(providerId).setConsumerActorIdList(serviceId, this.toSortedConsumerIds(providerId));
+        }
+        for (int consumerId = 0; consumerId < actors.size(); consumerId++) {
+            Actor consumerActor = actors.get(consumerId);
+            consumerActor.setIsMach(serviceId, holderIds[consumerId] >= 0);
+            if (holderIds[consumerId] >= 0) consumerActor.setProviderActorId(serviceId, holderIds[consumerId]);
+        }
+    }
+
+    /**
+     * 顧客の順位が低い(利得が小さい、等しければ後から保持した)ならtrue
+     */
+    private static boolean isWorse(double profit1, int seq1, double profit2, int seq2) {
+        int compare = Double.compare(profit1, profit2);
+        return compare < 0 || (compare == 0 && seq1 > seq2);
+    }
+
+    private boolean isWorse(int index1, int index2) {
+        return isWorse(this.profits[index1], this.seqs[index1], this.profits[index2], this.seqs[index2]);
+    }
+
+    private void siftUp(int base, int index, int id, double profit, int seq) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWorse(profit, seq, this.profits[base + parent], this.seqs[base + parent])) break;
+            this.move(base + parent, base + index);
+            index = parent;
+        }
+        this.set(base + index, id, profit, seq);
+    }
+
+    /**
+     * ヒープの最小値を取り除いて(id, profit, seq)を入れる
+     */
+    private void siftDown(int base, int size, int id, double profit, int seq) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && this.isWorse(base + child + 1, base + child)) child++;
+            if (!isWorse(this.profits[base + child], this.seqs[base + child], profit, seq)) break;
+            this.move(base + child, base + index);
+            index = child;
+        }
+        this.set(base + index, id, profit, seq);
+    }
+
+    private void move(int from, int to) {
+        this.set(to, this.ids[from], this.profits[from], this.seqs[from]);
+    }
+
+    private void set(int index, int id, double profit, int seq) {
+        this.ids[index] = id;
+        this.profits[index] = profit;
+        this.seqs[index] = seq;
+    }
+
+    /**
+     * ヒープの顧客を順位の高い順に並べたIDのリスト
+     */
+    private List<Integer> toSortedConsumerIds(int providerId) {
+        int base = providerId * this.capacity;
+        Integer[] order = new Integer[this.sizes[providerId]];
+        for (int i = 0; i < order.length; i++) order[i] = base + i;
+        Arrays.sort(order, (i1, i2) -> this.isWorse(i1, i2) ? 1 : this.isWorse(i2, i1) ? -1 : 0);
+        List<Integer> consumerIds = new ArrayList<>(order.length);
+        for (int i : order) consumerIds.add(this.ids[i]);
+        return consumerIds;
+    }
+}
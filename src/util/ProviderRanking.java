@@ -0,0 +1,89 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 各Actor・各サービスについて、市場範囲の購入先のうち利得が1番目と2番目のものを保持するキャッシュ
+ * 価格が固定されている価格均衡ループの1回の中でのみ有効
+ * 「あるActorを除いた購入先」の利得をO(1)で求めるために使う
+ */
+public final class ProviderRanking {
+
+    // 利得最大の購入先ActorのID、市場範囲にActorがいなければ-1
+    private final int[] bestProviderIds;
+    // 利得最大の購入先の利得
+    private final double[] bestProfits;
+    // 利得2番目の購入先の利得
+    private final double[] secondProfits;
+    // 自給時の利得
+    private final double[] selfProfits;
+    // サービス数
+    private final int serviceCount;
+
+    private ProviderRanking(int actorCount, int serviceCount) {
+        this.serviceCount = serviceCount;
+        this.bestProviderIds = new int[actorCount * serviceCount];
+        this.bestProfits = new double[actorCount * serviceCount];
+        this.secondProfits = new double[actorCount * serviceCount];
+        this.selfProfits = new double[actorCount * serviceCount];
+        Arrays.fill(this.bestProviderIds, -1);
+        Arrays.fill(this.bestProfits, Double.NEGATIVE_INFINITY);
+        Arrays.fill(this.secondProfits, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * 現在の価格で全Actorの購入先の順位を計算
+     *
+     * @param actors 全Actorのリスト
+     * @return キャッシュ
+     */
+    public static ProviderRanking build(List<Actor> actors) {
+        if (actors.isEmpty()) return new ProviderRanking(0, 0);
+        ActorStore store = actors.get(0).getStore();
+        int serviceCount = store.getConfig().getServiceCount();
+        ProviderRanking ranking = new ProviderRanking(actors.size(), serviceCount);
+        IntStream.range(0, actors.size()).parallel().forEach(consumerId -> {
+            int marketActorCount = store.getMarketActorCount(consumerId);
+            for (int serviceId = 0; serviceId < serviceCount; serviceId++) {
+                int index = ranking.toIndex(consumerId, serviceId);
+                ranking.selfProfits[index] = ProfitKernel.calcProfit(store, consumerId, consumerId, serviceId);
+                for (int i = 0; i < marketActorCount; i++) {
+                    int providerId = store.getMarketActorId(consumerId, i);
+                    double profit = ProfitKernel.calcProfit(store, providerId, consumerId, serviceId);
+                    if (profit > ranking.bestProfits[index]) {
+                        ranking.secondProfits[index] = ranking.bestProfits[index];
+                        ranking.bestProfits[index] = profit;
+                        ranking.bestProviderIds[index] = providerId;
+                    } else if (profit > ranking.secondProfits[index]) {
+                        ranking.secondProfits[index] = profit;
+                    }
+                }
+            }
+        });
+        return ranking;
+    }
+
+    /**
+     * excludedActorIdのActorを購入先から除いた時の、consumerの購入時利得
+     * ActorUtil.selectProviderと同様に、市場範囲の購入先が自給より有利でなければ自給の利得を返す
+     *
+     * @param consumerId      購入するActorのID
+     * @param excludedActorId 購入先から除くActorのID
+     * @param serviceId       サービスID
+     * @return 利得
+     */
+    public double getSelectedProfitWithout(int consumerId, int excludedActorId, int serviceId) {
+        int index = toIndex(consumerId, serviceId);
+        double marketProfit = (this.bestProviderIds[index] != excludedActorId) ? this.bestProfits[index] : this.secondProfits[index];
+        return (marketProfit > this.selfProfits[index]) ? marketProfit : this.selfProfits[index];
+    }
+
+    private int toIndex(int actorId, int serviceId) {
+        return actorId * this.serviceCount + serviceId;
+    }
+}
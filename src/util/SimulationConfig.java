@@ -0,0 +1,710 @@
+package util;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static util.Const.*;
+
+/**
+ * シミュレーションのパラメータ(不変)
+ * 既定値はConstの値で、Builderまたはpropertiesファイルから生成する
+ */
+public final class SimulationConfig implements Serializable {
+
+    private static final long serialVersionUID = -8636672431974481453L;
+
+    // Constの値のみからなる設定
+    public static final SimulationConfig DEFAULT = builder().build();
+    // 結果に影響しない実行環境の設定のキー
+    private static final Set<String> RUNTIME_KEYS = Set.of("priceParallelism");
+
+    private final int actorCount;
+    private final int serviceCount;
+    private final int simulationCount;
+    private final int fieldSize;
+    private final int marketRange;
+    private final int balancePriceMaxCount;
+
+    private final int deltaPrice;
+    private final int minPrice;
+    private final int maxPrice;
+    private final int balancePriceThreshold;
+    private final int maxConsumers;
+    private final PriceSearchMode priceSearchMode;
+    private final MatchingMode matchingMode;
+    private final boolean useSpatialGrid;
+    private final OscillationPolicy oscillationPolicy;
+    private final int oscillationHistory;
+    private final int priceParallelism;
+    private final int logKeyframeInterval;
+    private final PriceLogCompression priceLogCompression;
+    private final int checkpointInterval;
+
+    private final int capabilityCount;
+    private final double muCapability;
+    private final double sdCapability;
+    private final double muFeature;
+    private final double sdFeature;
+    private final double moveCost;
+    private final List<List<Integer>> capabilitiesLists;
+
+    private final long posSeed;
+    private final long capabilitySeed;
+    private final long featureSeed;
+
+    private SimulationConfig(Builder builder) {
+        this.actorCount = builder.actorCount;
+        this.serviceCount = builder.serviceCount;
+        this.simulationCount = builder.simulationCount;
+        this.fieldSize = builder.fieldSize;
+        this.marketRange = builder.marketRange;
+        this.balancePriceMaxCount = builder.balancePriceMaxCount;
+        this.deltaPrice = builder.deltaPrice;
+        this.minPrice = builder.minPrice;
+        this.maxPrice = builder.maxPrice;
+        this.balancePriceThreshold = builder.balancePriceThreshold;
+        this.maxConsumers = builder.maxConsumers;
+        this.priceSearchMode = builder.priceSearchMode;
+        this.matchingMode = builder.matchingMode;
+        this.useSpatialGrid = builder.useSpatialGrid;
+        this.oscillationPolicy = builder.oscillationPolicy;
+        this.oscillationHistory = builder.oscillationHistory;
+        this.priceParallelism = builder.priceParallelism;
+        this.logKeyframeInterval = builder.logKeyframeInterval;
+        this.priceLogCompression = builder.priceLogCompression;
+        this.checkpointInterval = builder.checkpointInterval;
+        this.capabilityCount = builder.capabilityCount;
+        this.muCapability = builder.muCapability;
+        this.sdCapability = builder.sdCapability;
+        this.muFeature = builder.muFeature;
+        this.sdFeature = builder.sdFeature;
+        this.moveCost = builder.moveCost;
+        this.capabilitiesLists = Collections.unmodifiableList(builder.capabilitiesLists.stream()
+                .map(list -> Collections.unmodifiableList(new ArrayList<>(list)))
+                .collect(Collectors.toList()));
+        this.posSeed = builder.posSeed;
+        this.capabilitySeed = builder.capabilitySeed;
+        this.featureSeed = builder.featureSeed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * この設定を初期値とするBuilder
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .actorCount(this.actorCount)
+                .serviceCount(this.serviceCount)
+                .simulationCount(this.simulationCount)
+                .fieldSize(this.fieldSize)
+                .marketRange(this.marketRange)
+                .balancePriceMaxCount(this.balancePriceMaxCount)
+                .deltaPrice(this.deltaPrice)
+                .minPrice(this.minPrice)
+                .maxPrice(this.maxPrice)
+                .balancePriceThreshold(this.balancePriceThreshold)
+                .maxConsumers(this.maxConsumers)
+                .priceSearchMode(this.priceSearchMode)
+                .matchingMode(this.matchingMode)
+                .useSpatialGrid(this.useSpatialGrid)
+                .oscillationPolicy(this.oscillationPolicy)
+                .oscillationHistory(this.oscillationHistory)
+                .priceParallelism(this.priceParallelism)
+                .logKeyframeInterval(this.logKeyframeInterval)
+                .priceLogCompression(this.priceLogCompression)
+                .checkpointInterval(this.checkpointInterval)
+                .capabilityCount(this.capabilityCount)
+                .muCapability(this.muCapability)
+                .sdCapability(this.sdCapability)
+                .muFeature(this.muFeature)
+                .sdFeature(this.sdFeature)
+                .moveCost(this.moveCost)
+                .capabilitiesLists(this.capabilitiesLists)
+                .posSeed(this.posSeed)
+                .capabilitySeed(this.capabilitySeed)
+                .featureSeed(this.featureSeed);
+    }
+
+    /**
+     * propertiesファイルから設定を読み込む
+     * 記述のないキーは既定値
+     *
+     * @param fileName propertiesファイル名
+     * @return 設定
+     */
+    public static SimulationConfig load(String fileName) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(fileName)), "UTF-8")) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    /**
+     * Propertiesから設定を生成
+     * キーはフィールド名(actorCount, marketRange, ...)、capabilitiesListsは"0,1;2,3;4,5"の形式
+     *
+     * @param properties 設定値
+     * @return 設定
+     */
+    public static SimulationConfig fromProperties(Properties properties) {
+        return builder().apply(properties).build();
+    }
+
+    /**
+     * 実行時のみの設定(priceParallelism)を除いて同じ設定か
+     * 実行時のみの設定は結果に影響しないので、異なっていても中断したシミュレーションを再開できる
+     */
+    public boolean isSameSimulation(SimulationConfig other) {
+        Properties properties = this.toProperties();
+        Properties otherProperties = other.toProperties();
+        RUNTIME_KEYS.forEach(key -> {
+            properties.remove(key);
+            otherProperties.remove(key);
+        });
+        return properties.equals(otherProperties);
+    }
+
+    /**
+     * fromPropertiesで同じ設定に戻せるPropertiesに変換
+     *
+     * @return 全フィールドの設定値
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("actorCount", String.valueOf(this.actorCount));
+        properties.setProperty("serviceCount", String.valueOf(this.serviceCount));
+        properties.setProperty("simulationCount", String.valueOf(this.simulationCount));
+        properties.setProperty("fieldSize", String.valueOf(this.fieldSize));
+        properties.setProperty("marketRange", String.valueOf(this.marketRange));
+        properties.setProperty("balancePriceMaxCount", String.valueOf(this.balancePriceMaxCount));
+        properties.setProperty("deltaPrice", String.valueOf(this.deltaPrice));
+        properties.setProperty("minPrice", String.valueOf(this.minPrice));
+        properties.setProperty("maxPrice", String.valueOf(this.maxPrice));
+        properties.setProperty("balancePriceThreshold", String.valueOf(this.balancePriceThreshold));
+        properties.setProperty("maxConsumers", String.valueOf(this.maxConsumers));
+        properties.setProperty("priceSearchMode", this.priceSearchMode.name());
+        properties.setProperty("matchingMode", this.matchingMode.name());
+        properties.setProperty("useSpatialGrid", String.valueOf(this.useSpatialGrid));
+        properties.setProperty("oscillationPolicy", this.oscillationPolicy.name());
+        properties.setProperty("oscillationHistory", String.valueOf(this.oscillationHistory));
+        properties.setProperty("priceParallelism", String.valueOf(this.priceParallelism));
+        properties.setProperty("logKeyframeInterval", String.valueOf(this.logKeyframeInterval));
+        properties.setProperty("priceLogCompression", this.priceLogCompression.name());
+        properties.setProperty("checkpointInterval", String.valueOf(this.checkpointInterval));
+        properties.setProperty("capabilityCount", String.valueOf(this.capabilityCount));
+        properties.setProperty("muCapability", String.valueOf(this.muCapability));
+        properties.setProperty("sdCapability", String.valueOf(this.sdCapability));
+        properties.setProperty("muFeature", String.valueOf(this.muFeature));
+        properties.setProperty("sdFeature", String.valueOf(this.sdFeature));
+        properties.setProperty("moveCost", String.valueOf(this.moveCost));
+        properties.setProperty("capabilitiesLists", this.capabilitiesLists.stream()
+                .map(list -> list.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .collect(Collectors.joining(";")));
+        properties.setProperty("posSeed", String.valueOf(this.posSeed));
+        properties.setProperty("capabilitySeed", String.valueOf(this.capabilitySeed));
+        properties.setProperty("featureSeed", String.valueOf(this.featureSeed));
+        return properties;
+    }
+
+    public int getActorCount() {
+        return this.actorCount;
+    }
+
+    public int getServiceCount() {
+        return this.serviceCount;
+    }
+
+    public int getSimulationCount() {
+        return this.simulationCount;
+    }
+
+    public int getFieldSize() {
+        return this.fieldSize;
+    }
+
+    public int getMarketRange() {
+        return this.marketRange;
+    }
+
+    public int getBalancePriceMaxCount() {
+        return this.balancePriceMaxCount;
+    }
+
+    public int getDeltaPrice() {
+        return this.deltaPrice;
+    }
+
+    public int getMinPrice() {
+        return this.minPrice;
+    }
+
+    public int getMaxPrice() {
+        return this.maxPrice;
+    }
+
+    public int getBalancePriceThreshold() {
+        return this.balancePriceThreshold;
+    }
+
+    public int getMaxConsumers() {
+        return this.maxConsumers;
+    }
+
+    public PriceSearchMode getPriceSearchMode() {
+        return this.priceSearchMode;
+    }
+
+    public MatchingMode getMatchingMode() {
+        return this.matchingMode;
+    }
+
+    public boolean isUseSpatialGrid() {
+        return this.useSpatialGrid;
+    }
+
+    public OscillationPolicy getOscillationPolicy() {
+        return this.oscillationPolicy;
+    }
+
+    public int getOscillationHistory() {
+        return this.oscillationHistory;
+    }
+
+    public int getPriceParallelism() {
+        return this.priceParallelism;
+    }
+
+    public int getLogKeyframeInterval() {
+        return this.logKeyframeInterval;
+    }
+
+    public PriceLogCompression getPriceLogCompression() {
+        return this.priceLogCompression;
+    }
+
+    public int getCheckpointInterval() {
+        return this.checkpointInterval;
+    }
+
+    public int getCapabilityCount() {
+        return this.capabilityCount;
+    }
+
+    public double getMuCapability() {
+        return this.muCapability;
+    }
+
+    public double getSdCapability() {
+        return this.sdCapability;
+    }
+
+    public double getMuFeature() {
+        return this.muFeature;
+    }
+
+    public double getSdFeature() {
+        return this.sdFeature;
+    }
+
+    public double getMoveCost() {
+        return this.moveCost;
+    }
+
+    public List<List<Integer>> getCapabilitiesLists() {
+        return this.capabilitiesLists;
+    }
+
+    public long getPosSeed() {
+        return this.posSeed;
+    }
+
+    public long getCapabilitySeed() {
+        return this.capabilitySeed;
+    }
+
+    public long getFeatureSeed() {
+        return this.featureSeed;
+    }
+
+    @Override
+    public String toString() {
+        return "actorCount=" + this.actorCount
+                + ", serviceCount=" + this.serviceCount
+                + ", simulationCount=" + this.simulationCount
+                + ", fieldSize=" + this.fieldSize
+                + ", marketRange=" + this.marketRange
+                + ", balancePriceMaxCount=" + this.balancePriceMaxCount
+                + ", deltaPrice=" + this.deltaPrice
+                + ", minPrice=" + this.minPrice
+                + ", maxPrice=" + this.maxPrice
+                + ", balancePriceThreshold=" + this.balancePriceThreshold
+                + ", maxConsumers=" + this.maxConsumers
+                + ", priceSearchMode=" + this.priceSearchMode
+                + ", matchingMode=" + this.matchingMode
+                + ", useSpatialGrid=" + this.useSpatialGrid
+                + ", oscillationPolicy=" + this.oscillationPolicy
+                + ", oscillationHistory=" + this.oscillationHistory
+                + ", priceParallelism=" + this.priceParallelism
+                + ", logKeyframeInterval=" + this.logKeyframeInterval
+                + ", priceLogCompression=" + this.priceLogCompression
+                + ", checkpointInterval=" + this.checkpointInterval
+                + ", capabilityCount=" + this.capabilityCount
+                + ", muCapability=" + this.muCapability
+                + ", sdCapability=" + this.sdCapability
+                + ", muFeature=" + this.muFeature
+                + ", sdFeature=" + this.sdFeature
+                + ", moveCost=" + this.moveCost
+                + ", capabilitiesLists=" + this.capabilitiesLists
+                + ", posSeed=" + this.posSeed
+                + ", capabilitySeed=" + this.capabilitySeed
+                + ", featureSeed=" + this.featureSeed;
+    }
+
+    public static final class Builder {
+        private int actorCount = ACTOR_COUNT;
+        private int serviceCount = SERVICE_COUNT;
+        private int simulationCount = SIMULATION_COUNT;
+        private int fieldSize = FIELD_SIZE;
+        private int marketRange = MARKET_RANGE;
+        private int balancePriceMaxCount = BALANCE_PRICE_MAX_COUNT;
+        private int deltaPrice = DELTA_PRICE;
+        private int minPrice = MIN_PRICE;
+        private int maxPrice = MAX_PRICE;
+        private int balancePriceThreshold = BALANCE_PRICE_THRESHOLD;
+        private int maxConsumers = MAX_CONSUMERS;
+        private PriceSearchMode priceSearchMode = PRICE_SEARCH_MODE;
+        private MatchingMode matchingMode = MATCHING_MODE;
+        private boolean useSpatialGrid = USE_SPATIAL_GRID;
+        private OscillationPolicy oscillationPolicy = OSCILLATION_POLICY;
+        private int oscillationHistory = OSCILLATION_HISTORY;
+        private int priceParallelism = PRICE_PARALLELISM;
+        private int logKeyframeInterval = LOG_KEYFRAME_INTERVAL;
+        private PriceLogCompression priceLogCompression = PRICE_LOG_COMPRESSION;
+        private int checkpointInterval = CHECKPOINT_INTERVAL;
+        private int capabilityCount = CAPABILITY_COUNT;
+        private double muCapability = MU_CAPABILITY;
+        private double sdCapability = SD_CAPABILITY;
+        private double muFeature = MU_FEATURE;
+        private double sdFeature = SD_FEATURE;
+        private double moveCost = MOVE_COST;
+        private List<List<Integer>> capabilitiesLists = CAPABILITIES_LISTS;
+        private long posSeed = POS_SEED;
+        private long capabilitySeed = CAPABILITY_SEED;
+        private long featureSeed = FEATURE_SEED;
+
+        private Builder() {
+        }
+
+        public Builder actorCount(int actorCount) {
+            this.actorCount = actorCount;
+            return this;
+        }
+
+        public Builder serviceCount(int serviceCount) {
+            this.serviceCount = serviceCount;
+            return this;
+        }
+
+        public Builder simulationCount(int simulationCount) {
+            this.simulationCount = simulationCount;
+            return this;
+        }
+
+        public Builder fieldSize(int fieldSize) {
+            this.fieldSize = fieldSize;
+            return this;
+        }
+
+        public Builder marketRange(int marketRange) {
+            this.marketRange = marketRange;
+            return this;
+        }
+
+        public Builder balancePriceMaxCount(int balancePriceMaxCount) {
+            this.balancePriceMaxCount = balancePriceMaxCount;
+            return this;
+        }
+
+        public Builder deltaPrice(int deltaPrice) {
+            this.deltaPrice = deltaPrice;
+            return this;
+        }
+
+        public Builder minPrice(int minPrice) {
+            this.minPrice = minPrice;
+            return this;
+        }
+
+        public Builder maxPrice(int maxPrice) {
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public Builder balancePriceThreshold(int balancePriceThreshold) {
+            this.balancePriceThreshold = balancePriceThreshold;
+            return this;
+        }
+
+        public Builder maxConsumers(int maxConsumers) {
+            this.maxConsumers = maxConsumers;
+            return this;
+        }
+
+        public Builder priceSearchMode(PriceSearchMode priceSearchMode) {
+            this.priceSearchMode = priceSearchMode;
+            return this;
+        }
+
+        public Builder matchingMode(MatchingMode matchingMode) {
+            this.matchingMode = matchingMode;
+            return this;
+        }
+
+        public Builder useSpatialGrid(boolean useSpatialGrid) {
+            this.useSpatialGrid = useSpatialGrid;
+            return this;
+        }
+
+        public Builder oscillationPolicy(OscillationPolicy oscillationPolicy) {
+            this.oscillationPolicy = oscillationPolicy;
+            return this;
+        }
+
+        public Builder oscillationHistory(int oscillationHistory) {
+            this.oscillationHistory = oscillationHistory;
+            return this;
+        }
+
+        public Builder priceParallelism(int priceParallelism) {
+            this.priceParallelism = priceParallelism;
+            return this;
+        }
+
+        public Builder logKeyframeInterval(int logKeyframeInterval) {
+            this.logKeyframeInterval = logKeyframeInterval;
+            return this;
+        }
+
+        public Builder priceLogCompression(PriceLogCompression priceLogCompression) {
+            this.priceLogCompression = priceLogCompression;
+            return this;
+        }
+
+        public Builder checkpointInterval(int checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        public Builder capabilityCount(int capabilityCount) {
+            this.capabilityCount = capabilityCount;
+            return this;
+        }
+
+        public Builder muCapability(double muCapability) {
+            this.muCapability = muCapability;
+            return this;
+        }
+
+        public Builder sdCapability(double sdCapability) {
+            this.sdCapability = sdCapability;
+            return this;
+        }
+
+        public Builder muFeature(double muFeature) {
+            this.muFeature = muFeature;
+            return this;
+        }
+
+        public Builder sdFeature(double sdFeature) {
+            this.sdFeature = sdFeature;
+            return this;
+        }
+
+        public Builder moveCost(double moveCost) {
+            this.moveCost = moveCost;
+            return this;
+        }
+
+        public Builder capabilitiesLists(List<List<Integer>> capabilitiesLists) {
+            this.capabilitiesLists = capabilitiesLists;
+            return this;
+        }
+
+        public Builder posSeed(long posSeed) {
+            this.posSeed = posSeed;
+            return this;
+        }
+
+        public Builder capabilitySeed(long capabilitySeed) {
+            this.capabilitySeed = capabilitySeed;
+            return this;
+        }
+
+        public Builder featureSeed(long featureSeed) {
+            this.featureSeed = featureSeed;
+            return this;
+        }
+
+        /**
+         * 座標、Capability、Featureの乱数のシードをseed, seed + 1, seed + 2に設定
+         */
+        public Builder seed(long seed) {
+            return this.posSeed(seed).capabilitySeed(seed + 1).featureSeed(seed + 2);
+        }
+
+        /**
+         * Propertiesに記述された値で上書き
+         * seedは個別のシードより先に適用する
+         */
+        public Builder apply(Properties properties) {
+            String seed = properties.getProperty("seed");
+            if (seed != null) this.seed(Long.parseLong(seed.trim()));
+
+            for (String key : properties.stringPropertyNames()) {
+                String value = properties.getProperty(key).trim();
+                switch (key) {
+                    case "seed":
+                        break;
+                    case "actorCount":
+                        this.actorCount(Integer.parseInt(value));
+                        break;
+                    case "serviceCount":
+                        this.serviceCount(Integer.parseInt(value));
+                        break;
+                    case "simulationCount":
+                        this.simulationCount(Integer.parseInt(value));
+                        break;
+                    case "fieldSize":
+                        this.fieldSize(Integer.parseInt(value));
+                        break;
+                    case "marketRange":
+                        this.marketRange(Integer.parseInt(value));
+                        break;
+                    case "balancePriceMaxCount":
+                        this.balancePriceMaxCount(Integer.parseInt(value));
+                        break;
+                    case "deltaPrice":
+                        this.deltaPrice(Integer.parseInt(value));
+                        break;
+                    case "minPrice":
+                        this.minPrice(Integer.parseInt(value));
+                        break;
+                    case "maxPrice":
+                        this.maxPrice(Integer.parseInt(value));
+                        break;
+                    case "balancePriceThreshold":
+                        this.balancePriceThreshold(Integer.parseInt(value));
+                        break;
+                    case "maxConsumers":
+                        this.maxConsumers(Integer.parseInt(value));
+                        break;
+                    case "priceSearchMode":
+                        this.priceSearchMode(PriceSearchMode.valueOf(value));
+                        break;
+                    case "matchingMode":
+                        this.matchingMode(MatchingMode.valueOf(value));
+                        break;
+                    case "useSpatialGrid":
+                        this.useSpatialGrid(Boolean.parseBoolean(value));
+                        break;
+                    case "oscillationPolicy":
+                        this.oscillationPolicy(OscillationPolicy.valueOf(value));
+                        break;
+                    case "oscillationHistory":
+                        this.oscillationHistory(Integer.parseInt(value));
+                        break;
+                    case "priceParallelism":
+                        this.priceParallelism(Integer.parseInt(value));
+                        break;
+                    case "logKeyframeInterval":
+                        this.logKeyframeInterval(Integer.parseInt(value));
+                        break;
+                    case "priceLogCompression":
+                        this.priceLogCompression(PriceLogCompression.valueOf(value));
+                        break;
+                    case "checkpointInterval":
+                        this.checkpointInterval(Integer.parseInt(value));
+                        break;
+                    case "capabilityCount":
+                        this.capabilityCount(Integer.parseInt(value));
+                        break;
+                    case "muCapability":
+                        this.muCapability(Double.parseDouble(value));
+                        break;
+                    case "sdCapability":
+                        this.sdCapability(Double.parseDouble(value));
+                        break;
+                    case "muFeature":
+                        this.muFeature(Double.parseDouble(value));
+                        break;
+                    case "sdFeature":
+                        this.sdFeature(Double.parseDouble(value));
+                        break;
+                    case "moveCost":
+                        this.moveCost(Double.parseDouble(value));
+                        break;
+                    case "capabilitiesLists":
+                        this.capabilitiesLists(parseCapabilitiesLists(value));
+                        break;
+                    case "posSeed":
+                        this.posSeed(Long.parseLong(value));
+                        break;
+                    case "capabilitySeed":
+                        this.capabilitySeed(Long.parseLong(value));
+                        break;
+                    case "featureSeed":
+                        this.featureSeed(Long.parseLong(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown key: " + key);
+                }
+            }
+            return this;
+        }
+
+        public SimulationConfig build() {
+            if (this.actorCount <= 0) throw new IllegalArgumentException("actorCount must be positive: " + this.actorCount);
+            if (this.serviceCount <= 0) throw new IllegalArgumentException("serviceCount must be positive: " + this.serviceCount);
+            if (this.fieldSize <= 0) throw new IllegalArgumentException("fieldSize must be positive: " + this.fieldSize);
+            if (this.deltaPrice <= 0) throw new IllegalArgumentException("deltaPrice must be positive: " + this.deltaPrice);
+            if (this.logKeyframeInterval <= 0) throw new IllegalArgumentException("logKeyframeInterval must be positive: " + this.logKeyframeInterval);
+            if (this.oscillationHistory < 2) throw new IllegalArgumentException("oscillationHistory must be at least 2: " + this.oscillationHistory);
+            if (this.priceParallelism < 0) throw new IllegalArgumentException("priceParallelism must not be negative: " + this.priceParallelism);
+            if (this.checkpointInterval < 0) throw new IllegalArgumentException("checkpointInterval must not be negative: " + this.checkpointInterval);
+            if (this.minPrice > this.maxPrice) throw new IllegalArgumentException("minPrice > maxPrice: " + this.minPrice + " > " + this.maxPrice);
+            if (this.capabilitiesLists.size() != this.serviceCount) {
+                throw new IllegalArgumentException("capabilitiesLists must have serviceCount(" + this.serviceCount + ") lists: " + this.capabilitiesLists);
+            }
+            boolean isValidCapabilityId = this.capabilitiesLists.stream()
+                    .flatMap(List::stream)
+                    .allMatch(id -> id >= 0 && id < this.capabilityCount);
+            if (!isValidCapabilityId) {
+                throw new IllegalArgumentException("capability id out of range [0, " + this.capabilityCount + "): " + this.capabilitiesLists);
+            }
+            return new SimulationConfig(this);
+        }
+
+        /**
+         * "0,1;2,3;4,5"形式の文字列をサービス毎のCapabilityのIDのリストに変換
+         */
+        private static List<List<Integer>> parseCapabilitiesLists(String value) {
+            return Arrays.stream(value.split(";"))
+                    .map(list -> Arrays.stream(list.split(","))
+                            .map(String::trim)
+                            .filter(id -> !id.isEmpty())
+                            .map(Integer::valueOf)
+                            .collect(Collectors.toList()))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package util;
+
+import model.Actor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * トーラス空間上の一様グリッドによる空間インデックス
+ * セルの一辺は市場範囲以上なので、市場範囲のActorは周囲8近傍のセルだけを探索すれば見つかる
+ */
+public final class SpatialGrid {
+
+    // フィールドの一辺の長さ
+    private final int fieldSize;
+    // 一辺あたりのセル数
+    private final int cellCount;
+    // 各セルの先頭インデックス(CSR形式)
+    private final int[] cellStarts;
+    // セル順に並べたActorのID
+    private final int[] cellActorIds;
+
+    private SpatialGrid(int fieldSize, int cellCount, int[] cellStarts, int[] cellActorIds) {
+        this.fieldSize = fieldSize;
+        this.cellCount = cellCount;
+        this.cellStarts = cellStarts;
+        this.cellActorIds = cellActorIds;
+    }
+
+    /**
+     * Actorのリストからグリッドを構築
+     *
+     * @param actors 全Actorのリスト
+     * @return グリッド
+     */
+    public static SpatialGrid build(List<Actor> actors) {
+        SimulationConfig config = actors.isEmpty() ? SimulationConfig.DEFAULT : actors.get(0).getConfig();
+        int fieldSize = config.getFieldSize();
+        // セルの一辺が市場範囲を下回らない最大の分割数
+        int cellCount = Math.max(1, fieldSize / Math.max(1, config.getMarketRange()));
+        int[] cellIndexes = new int[actors.size()];
+        int[] cellStarts = new int[cellCount * cellCount + 1];
+
+        // 各セルのActor数を数える
+        for (int i = 0; i < actors.size(); i++) {
+            int[] pos = actors.get(i).getPos();
+            cellIndexes[i] = toCellIndex(toCell(pos[0], fieldSize, cellCount), toCell(pos[1], fieldSize, cellCount), cellCount);
+            cellStarts[cellIndexes[i] + 1]++;
+        }
+        for (int cell = 0; cell < cellCount * cellCount; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        // ID昇順のままセルに振り分け
+        int[] cursor = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        int[] cellActorIds = new int[actors.size()];
+        for (int i = 0; i < actors.size(); i++) {
+            cellActorIds[cursor[cellIndexes[i]]++] = actors.get(i).getId();
+        }
+        return new SpatialGrid(fieldSize, cellCount, cellStarts, cellActorIds);
+    }
+
+    /**
+     * hostPosの市場範囲にいるActorのIDをID昇順で返す
+     * 判定は総当たりと同じActorUtil.isMarketRangeを用いるため、結果は総当たりと一致する
+     *
+     * @param hostActor 中心となるActor(結果から除く)
+     * @param hostPos   中心となる座標
+     * @param actors    全Actorのリスト
+     * @return 市場範囲にいるActorのIDのリスト
+     */
+    public List<Integer> findMarketActorIds(Actor hostActor, int[] hostPos, List<Actor> actors) {
+        int[] cellXs = neighborCells(toCell(hostPos[0], this.fieldSize, this.cellCount));
+        int[] cellYs = neighborCells(toCell(hostPos[1], this.fieldSize, this.cellCount));
+
+        // 近傍セルの候補を収集
+        int candidateCount = 0;
+        for (int cellX : cellXs) {
+            for (int cellY : cellYs) {
+                int cell = toCellIndex(cellX, cellY, this.cellCount);
+                candidateCount += this.cellStarts[cell + 1] - this.cellStarts[cell];
+            }
+        }
+        int[] candidates = new int[candidateCount];
+        int n = 0;
+        for (int cellX : cellXs) {
+            for (int cellY : cellYs) {
+                int cell = toCellIndex(cellX, cellY, this.cellCount);
+                for (int i = this.cellStarts[cell]; i < this.cellStarts[cell + 1]; i++) {
+                    candidates[n++] = this.cellActorIds[i];
+                }
+            }
+        }
+        // 総当たりと同じ順序(ID昇順)にする
+        Arrays.sort(candidates);
+
+        List<Integer> marketActorIds = new ArrayList<>();
+        for (int candidateId : candidates) {
+            Actor targetActor = actors.get(candidateId);
+            if (!targetActor.equals(hostActor) && ActorUtil.isMarketRange(hostPos, targetActor)) {
+                marketActorIds.add(candidateId);
+            }
+        }
+        return marketActorIds;
+    }
+
+    /**
+     * 座標の属するセルを計算
+     */
+    private static int toCell(int p, int fieldSize, int cellCount) {
+        int cell = (int) (ActorUtil.convertTorusPos(p, fieldSize) * cellCount / (double) fieldSize);
+        return Math.min(cell, cellCount - 1);
+    }
+
+    private static int toCellIndex(int cellX, int cellY, int cellCount) {
+        return cellX * cellCount + cellY;
+    }
+
+    /**
+     * トーラス空間で隣接するセル(自身を含む)を重複なしで返す
+     */
+    private int[] neighborCells(int cell) {
+        return Arrays.stream(new int[]{cell - 1, cell, cell + 1})
+                .map(c -> (c + this.cellCount) % this.cellCount)
+                .distinct()
+                .toArray();
+    }
+}
@@ -0,0 +1,198 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * シミュレーションのログをStep毎にファイルへ追記する
+ * 呼び出し側はスナップショットを取ってキューに入れるだけで、書き込みは専用のスレッドで行う
+ * キューは上限付きなので、書き込みが追いつかなければ呼び出し側が待ち、メモリ使用量は実行の長さによらず一定になる
+ */
+public final class StreamingLogSink implements Closeable {
+
+    // キューに溜められるスナップショットの数
+    public static final int QUEUE_CAPACITY = 4;
+
+    // 書き込みスレッドの終了の合図
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final ActorLogWriter actorLogWriter;
+    private final PriceLogWriter priceLogWriter;
+    private final Thread writerThread;
+    // 書き込みスレッドで発生した例外
+    private volatile IOException failure;
+    // Checkpointに書き込む設定と評価ベクトル
+    private final SimulationConfig config;
+    private final double[] features;
+    // 追記した価格均衡ループの回数
+    private int priceIterationCount;
+    // 最後に追記したStepのスナップショット
+    private ActorLogStep lastStep;
+
+    /**
+     * @param actorFileName Actorのログのファイル名
+     * @param priceFileName 価格のログのファイル名
+     * @param store         シミュレーションのストア(設定と評価ベクトルを書き込む)
+     */
+    public StreamingLogSink(String actorFileName, String priceFileName, ActorStore store) throws IOException {
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.actorLogWriter = new ActorLogWriter(actorFileName, store);
+        try {
+            this.priceLogWriter = new PriceLogWriter(priceFileName, store.getActorCount(), store.getConfig().getServiceCount(),
+                    store.getConfig().getPriceLogCompression());
+        } catch (IOException e) {
+            this.actorLogWriter.close();
+            throw e;
+        }
+        this.config = store.getConfig();
+        this.features = store.copyFeatures();
+        this.writerThread = this.startWriterThread(actorFileName);
+    }
+
+    /**
+     * Checkpointの時点までのログを残し、続きを追記する
+     */
+    private StreamingLogSink(String actorFileName, String priceFileName, Checkpoint checkpoint) throws IOException {
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.actorLogWriter = ActorLogWriter.openAppend(actorFileName, checkpoint.getStepCount());
+        try {
+            this.priceLogWriter = PriceLogWriter.openAppend(priceFileName, checkpoint.getPriceIterationCount());
+        } catch (IOException e) {
+            this.actorLogWriter.close();
+            throw e;
+        }
+        this.config = checkpoint.getConfig();
+        this.features = checkpoint.getFeatures();
+        this.priceIterationCount = checkpoint.getPriceIterationCount();
+        this.writerThread = this.startWriterThread(actorFileName);
+    }
+
+    /**
+     * 中断したシミュレーションのログを開く
+     * Checkpointより後に書き込まれていたStepと価格均衡ループの回は削除する
+     */
+    public static StreamingLogSink resume(String actorFileName, String priceFileName, Checkpoint checkpoint) throws IOException {
+        return new StreamingLogSink(actorFileName, priceFileName, checkpoint);
+    }
+
+    /**
+     * 現在の全Actorの状態のスナップショットを追記
+     * スナップショットはログに書き込む値の配列だけで、Actorは複製しない
+     */
+    public void appendStep(List<Actor> actors) throws IOException {
+        this.lastStep = ActorLogStep.capture(actors);
+        this.put(this.lastStep);
+    }
+
+    /**
+     * 最後に追記したStepの状態をCheckpointとして書き込む
+     * ログの書き込みと同じスレッドでログをディスクに同期してから書き込むので、Checkpointが指すStepは必ずログに残っている
+     *
+     * @param fileName  Checkpointのファイル名
+     * @param stepCount 次に実行するStep
+     */
+    public void appendCheckpoint(String fileName, int stepCount) throws IOException {
+        if (this.lastStep == null) throw new IllegalStateException("no step to checkpoint");
+        this.put(new PendingCheckpoint(fileName,
+                new Checkpoint(this.config, stepCount, this.priceIterationCount, this.features, this.lastStep)));
+    }
+
+    /**
+     * 現在の全Actorの価格を価格均衡ループ1回分として追記
+     */
+    public void appendPrices(ActorStore store) throws IOException {
+        this.put(store.copyPrices());
+        this.priceIterationCount++;
+    }
+
+    /**
+     * キューに残っているスナップショットを書き終えてからファイルを閉じる
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.queue.put(END);
+            this.writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing log");
+        } finally {
+            try {
+                this.actorLogWriter.close();
+            } finally {
+                this.priceLogWriter.close();
+            }
+        }
+        if (this.failure != null) throw this.failure;
+    }
+
+    private void put(Object snapshot) throws IOException {
+        if (this.failure != null) throw this.failure;
+        try {
+            this.queue.put(snapshot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while appending log");
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Object snapshot;
+            try {
+                snapshot = this.queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (snapshot == END) return;
+            // 失敗後はキューを空けるだけにして呼び出し側を止めない
+            if (this.failure != null) continue;
+            try {
+                if (snapshot instanceof int[]) {
+                    this.priceLogWriter.writeIteration((int[]) snapshot);
+                } else if (snapshot instanceof PendingCheckpoint) {
+                    PendingCheckpoint pending = (PendingCheckpoint) snapshot;
+                    this.actorLogWriter.sync();
+                    this.priceLogWriter.sync();
+                    pending.checkpoint.write(pending.fileName);
+                } else {
+                    this.actorLogWriter.writeStep((ActorLogStep) snapshot);
+                }
+            } catch (IOException e) {
+                this.failure = e;
+            } catch (RuntimeException | Error e) {
+                // 書き込みスレッドが終了するとキューが空かずに呼び出し側が待ち続けるので、失敗として記録してキューを空け続ける
+                this.failure = new IOException("log writer failed", e);
+            }
+        }
+    }
+
+    private Thread startWriterThread(String actorFileName) {
+        Thread thread = new Thread(this::writeLoop, "log-writer-" + actorFileName);
+        // 異常終了したシミュレーションを待たせない、書き込み済みのStepはファイルに残る
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 書き込み待ちのCheckpoint
+     */
+    private static final class PendingCheckpoint {
+        private final String fileName;
+        private final Checkpoint checkpoint;
+
+        private PendingCheckpoint(String fileName, Checkpoint checkpoint) {
+            this.fileName = fileName;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package util;
+
+import model.Actor;
+import model.ActorStore;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * キューを用いたDAアルゴリズム
+ * 未マッチの顧客だけをキューから取り出してプロポーズさせ、キューが空になったら終了する
+ * 提供Actorは保持している顧客を利得をキーとした容量maxConsumersの最小ヒープで管理するため、
+ * プロポーズ1回の判定はヒープの最小値との比較だけで済む
+ * <p>
+ * 顧客の選考順と提供Actorの顧客の順位はどちらも顧客の購入時利得で、DeferredAcceptance.matching(ROUNDS)と同じ
+ * 利得が等しい場合は先に保持した顧客を優先する(ROUNDSの安定ソートと同じ)
+ */
+public final class WorklistDeferredAcceptance {
+
+    private WorklistDeferredAcceptance() {
+    }
+
+    /**
+     * actorsのサービス交換マッチング
+     */
+    public static void matching(List<Actor> actors) {
+        if (actors.isEmpty()) return;
+        ActorStore store = actors.get(0).getStore();
+        IntStream.range(0, store.getConfig().getServiceCount())
+                .forEach(serviceId -> matching(actors, store, serviceId));
+    }
+
+    /**
+     * serviceIdのサービスのマッチング
+     * 他のサービスの状態には触れないため、サービス毎に独立に実行できる
+     */
+    static void matching(List<Actor> actors, ActorStore store, int serviceId) {
+        int actorCount = actors.size();
+        PreferenceTable preferences = PreferenceTable.build(store, actorCount, serviceId);
+        ProviderHeaps heaps = new ProviderHeaps(actorCount, store.getConfig().getMaxConsumers());
+        // 顧客を保持している提供ActorのID、未マッチは-1
+        int[] holderIds = new int[actorCount];
+        int seq = heaps.seed(actors, store, serviceId, holderIds);
+
+        // 未マッチの顧客のキュー(リングバッファ)、キューにいる顧客は誰にも保持されていないので最大actorCount
+        int[] queue = new int[actorCount];
+        int head = 0;
+        int queueSize = 0;
+        for (int consumerId = 0; consumerId < actorCount; consumerId++) {
+            if (holderIds[consumerId] < 0) queue[queueSize++] = consumerId;
+        }
+
+        while (queueSize > 0) {
+            int consumerId = queue[head];
+            head = (head + 1) % actorCount;
+            queueSize--;
+
+            // 保持されるか選考リストが尽きるまで、現在の第一希望へプロポーズ
+            int i;
+            while ((i = preferences.next(consumerId)) >= 0) {
+                int providerId = preferences.getProviderId(i);
+                int rejectedId = heaps.offer(providerId, consumerId, preferences.getProfit(i), seq++);
+                if (rejectedId == consumerId) continue;
+                holderIds[consumerId] = providerId;
+                // 押し出された顧客はキューへ戻り、続きの選考からプロポーズする
+                if (rejectedId >= 0) {
+                    holderIds[rejectedId] = -1;
+                    queue[(head + queueSize) % actorCount] = rejectedId;
+                    queueSize++;
+                }
+                break;
+            }
+        }
+
+        heaps.apply(actors, serviceId, holderIds);
+    }
+}
@@ -0,0 +1,81 @@
+package util.legacy;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * ストア導入前のmodel.Actor(Javaのシリアライズで保存していたログの形式)
+ * シリアライズされたフィールドとserialVersionUIDは当時のクラスと同じで、変更しないこと
+ */
+public final class LegacyActor implements Serializable {
+
+    private static final long serialVersionUID = -6526471639214074645L;
+
+    // ID
+    private int id;
+    // position
+    private int[] pos;
+    // Capability(能力)ベクトル
+    private List<Double> capabilities;
+    // 各サービスの能力に対する評価ベクトルのリスト
+    private List<List<Double>> features;
+    // 各サービスの価格
+    private List<Integer> prices;
+    // サービス交換可能なActorのID
+    private List<Integer> marketActorIdList;
+    // 各サービスの購入先ActorのID
+    private List<Integer> providerActorIdList;
+    // 各サービスの売却先ActorのID
+    private List<List<Integer>> consumerActorIdsList;
+    // 各サービスにおける購入先の選考希望リスト(LegacyPurchaseInfo)
+    private List<List<?>> selectProviderList;
+    // サービス交換相手が確定したか
+    private List<Boolean> isMatches;
+    // 均衡価格判定フラグ
+    private boolean isChangePrice;
+    // 売却先ソート用Comparator(ログのActorはコピーなので常にnull)
+    private List<?> comparators;
+
+    private LegacyActor() {
+    }
+
+    public int getId() {
+        return this.id;
+    }
+
+    public int[] getPos() {
+        return this.pos;
+    }
+
+    public List<Double> getCapabilities() {
+        return this.capabilities;
+    }
+
+    public List<List<Double>> getFeatures() {
+        return this.features;
+    }
+
+    public List<Integer> getPrices() {
+        return this.prices;
+    }
+
+    public List<Integer> getMarketActorIdList() {
+        return this.marketActorIdList;
+    }
+
+    public List<Integer> getProviderActorIdList() {
+        return this.providerActorIdList;
+    }
+
+    public List<List<Integer>> getConsumerActorIdsList() {
+        return this.consumerActorIdsList;
+    }
+
+    public List<Boolean> getIsMatches() {
+        return this.isMatches;
+    }
+
+    public boolean isChangePrice() {
+        return this.isChangePrice;
+    }
+}
@@ -0,0 +1,71 @@
+package util.legacy;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ストア導入前のJavaのシリアライズ形式のActorのログ(List<List<model.Actor>>)を読み込む
+ * 現在のmodel.Actorとは互換性がないため、当時のクラスを固定したLegacyActorとして復元する
+ */
+public final class LegacyActorLog {
+
+    // ログ中のクラス名 -> 当時のクラスを固定したクラス
+    private static final Map<String, Class<?>> LEGACY_CLASSES = new HashMap<>();
+
+    static {
+        LEGACY_CLASSES.put("model.Actor", LegacyActor.class);
+        LEGACY_CLASSES.put("model.PurchaseInfo", LegacyPurchaseInfo.class);
+    }
+
+    private LegacyActorLog() {
+    }
+
+    /**
+     * ファイルから全Stepを読み込む
+     *
+     * @return [Step][actorId] 当時のActor
+     */
+    @SuppressWarnings("unchecked")
+    public static List<List<LegacyActor>> read(String fileName) throws IOException, ClassNotFoundException {
+        Object log;
+        try (ObjectInputStream inputStream = new LegacyObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            log = inputStream.readObject();
+        }
+        boolean isLegacyLog = log instanceof List
+                && ((List<?>) log).stream().allMatch(step -> step instanceof List
+                && ((List<?>) step).stream().allMatch(actor -> actor instanceof LegacyActor));
+        if (!isLegacyLog) throw new IOException("not a legacy actor log: " + fileName);
+        return (List<List<LegacyActor>>) log;
+    }
+
+    /**
+     * model.Actorなどのクラス記述子を、serialVersionUIDが当時のものと一致する場合に固定したクラスのものに置き換える
+     */
+    private static final class LegacyObjectInputStream extends ObjectInputStream {
+
+        LegacyObjectInputStream(InputStream inputStream) throws IOException {
+            super(inputStream);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            Class<?> legacyClass = LEGACY_CLASSES.get(descriptor.getName());
+            if (legacyClass == null) return descriptor;
+
+            ObjectStreamClass legacyDescriptor = ObjectStreamClass.lookup(legacyClass);
+            if (legacyDescriptor.getSerialVersionUID() != descriptor.getSerialVersionUID()) {
+                throw new InvalidClassException(descriptor.getName(), "not a legacy class, serialVersionUID = " + descriptor.getSerialVersionUID());
+            }
+            return legacyDescriptor;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package util.legacy;
+
+import java.io.Serializable;
+
+/**
+ * ストア導入前のmodel.PurchaseInfo(Javaのシリアライズで保存していたログの形式)
+ * シリアライズされたフィールドとserialVersionUIDは当時のクラスと同じで、変更しないこと
+ */
+public final class LegacyPurchaseInfo implements Serializable {
+
+    private static final long serialVersionUID = 99527787448458522L;
+
+    // 提供ActorのID
+    private int providerId;
+    // 購入によって生じた利得
+    private double profit;
+    // 支払った金額
+    private int price;
+
+    private LegacyPurchaseInfo() {
+    }
+
+    public int getProviderId() {
+        return this.providerId;
+    }
+
+    public double getProfit() {
+        return this.profit;
+    }
+
+    public int getPrice() {
+        return this.price;
+    }
+}
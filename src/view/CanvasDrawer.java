@@ -8,6 +8,8 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
 import model.Actor;
 import util.CalcUtil;
+import util.PriceTrace;
+import util.SimulationConfig;
 
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -23,6 +25,9 @@ import static util.Const.*;
  */
 public final class CanvasDrawer {
 
+    // 表示しているログの設定(サービス数、フィールドの大きさ)
+    private static SimulationConfig config = SimulationConfig.DEFAULT;
+
     // 現在のCanvasの大きさ
     private static int currentCanvasSize = CANVAS_SIZE;
     // Canvasとフィールドのサイズ比率
@@ -31,7 +36,7 @@ public final class CanvasDrawer {
     // 現在描画しているActorのリスト
     private static List<Actor> currentActors;
     // 価格均衡までの価格遷移データ
-    private static List<List<List<Integer>>> priceList;
+    private static PriceTrace priceList;
 
     // Actor描画のためのGraphicContext
     private static List<GraphicsContext> drawActorsTabGCList;
@@ -94,6 +99,21 @@ public final class CanvasDrawer {
         drawActorsCanvases = canvases;
     }
 
+    /**
+     * 表示するログの設定を登録
+     */
+    public static void setConfig(SimulationConfig config) {
+        CanvasDrawer.config = config;
+        currentCanvasRate = (double) currentCanvasSize / config.getFieldSize();
+    }
+
+    /**
+     * すべてのサービスを表示するタブのID(サービス数)
+     */
+    public static int getAllServicesId() {
+        return config.getServiceCount();
+    }
+
     /**
      * LineChartを登録
      */
@@ -135,21 +155,23 @@ public final class CanvasDrawer {
      * 再描画
      */
     public static void reDraw() {
-        Optional.ofNullable(currentActors).ifPresent(actors -> IntStream.range(0, SERVICE_COUNT + 1).forEach(i -> drawActorsAndNetwork(actors, i)));
+        Optional.ofNullable(currentActors).ifPresent(CanvasDrawer::drawAllServices);
         Optional.ofNullable(priceList).ifPresent(CanvasDrawer::drawPriceLineChart);
     }
 
     /**
      * 価格遷移グラフ描画
      */
-    public static void drawPriceLineChart(List<List<List<Integer>>> pricesListList) {
+    public static void drawPriceLineChart(PriceTrace priceTrace) {
         Optional.ofNullable(priceLineCharts).ifPresent(priceLineChart -> {
             priceLineChart.forEach(lineChart -> lineChart.getData().clear());
+            int actorCount = priceTrace.getActorCount();
+            int serviceCount = priceTrace.getServiceCount();
             // series初期化
             List<List<XYChart.Series<Number, Number>>> seriesListList = IntStream
-                    .range(0, SERVICE_COUNT + 1)
+                    .range(0, getAllServicesId() + 1)
                     .mapToObj(serviceId ->
-                            IntStream.range(0, ACTOR_COUNT)
+                            IntStream.range(0, actorCount)
                                     .mapToObj(actorId -> {
                                         XYChart.Series<Number, Number> series = new XYChart.Series<>();
                                         series.setName(String.valueOf(actorId));
@@ -159,29 +181,29 @@ public final class CanvasDrawer {
                     )
                     .collect(Collectors.toList());
 
-            // Data追加
-            IntStream.range(0, pricesListList.size()).forEach(i -> {
-                List<List<Integer>> pricesList = pricesListList.get(i);
-                IntStream.range(0, ACTOR_COUNT)
+            // Data追加(各回の変化を順に適用して全価格を復元する)
+            int[] prices = new int[actorCount * serviceCount];
+            IntStream.range(0, priceTrace.getIterationCount()).forEach(i -> {
+                priceTrace.applyIteration(i, prices);
+                IntStream.range(0, actorCount)
                         .filter(CanvasDrawer::isFocus)
-                        .forEach(actorId -> {
-                            List<Integer> prices = pricesList.get(actorId);
-                            IntStream.range(0, SERVICE_COUNT + 1)
-                                    .forEach(serviceId -> {
-                                        int price = (serviceId != ALL_SERVICES_ID) ? prices.get(serviceId) : prices.stream().mapToInt(Integer::intValue).sum();
-                                        seriesListList.get(serviceId).get(actorId).getData().add(new XYChart.Data<>(i, price));
-                                    });
-                        });
+                        .forEach(actorId -> IntStream.range(0, getAllServicesId() + 1)
+                                .forEach(serviceId -> {
+                                    int price = (serviceId != getAllServicesId())
+                                            ? prices[actorId * serviceCount + serviceId]
+                                            : Arrays.stream(prices, actorId * serviceCount, (actorId + 1) * serviceCount).sum();
+                                    seriesListList.get(serviceId).get(actorId).getData().add(new XYChart.Data<>(i, price));
+                                }));
             });
 
-            IntStream.range(0, SERVICE_COUNT + 1)
+            IntStream.range(0, getAllServicesId() + 1)
                     .forEach(serviceId ->
                             seriesListList.get(serviceId).forEach(series ->
                                     priceLineChart.get(serviceId).getData().add(series)
                             )
                     );
         });
-        priceList = pricesListList;
+        priceList = priceTrace;
     }
 
     /**
@@ -221,6 +243,13 @@ public final class CanvasDrawer {
         }
     }
 
+    /**
+     * すべてのタブにactorとnetworkを描画
+     */
+    public static void drawAllServices(List<Actor> actors) {
+        IntStream.range(0, getAllServicesId() + 1).forEach(i -> drawActorsAndNetwork(actors, i));
+    }
+
     /**
      * フォーカス状態をクリア
      */
@@ -292,7 +321,7 @@ public final class CanvasDrawer {
         // actor描画
         int[] pos = actor.getPos();
         if (showPriceCircle) {
-            int price = (serviceId != ALL_SERVICES_ID) ? actor.getPrice(serviceId) : actor.getPrices().stream().mapToInt(Integer::intValue).sum();
+            int price = (serviceId != getAllServicesId()) ? actor.getPrice(serviceId) : actor.getPrices().stream().mapToInt(Integer::intValue).sum();
             double size = (1 + (price / 100.0));
             double left = (pos[0] - (size / 2)) * currentCanvasRate;
             double top = (pos[1] - (size / 2)) * currentCanvasRate;
@@ -302,7 +331,7 @@ public final class CanvasDrawer {
         }
         double size = ACTOR_CIRCLE_SIZE;
         if (showCapability) {
-            double capability = (serviceId != ALL_SERVICES_ID) ? actor.getCapabilities(serviceId).stream().mapToDouble(Double::doubleValue).sum() : (actor.getCapabilities().stream().mapToDouble(Double::doubleValue).sum());
+            double capability = (serviceId != getAllServicesId()) ? actor.getCapabilities(serviceId).stream().mapToDouble(Double::doubleValue).sum() : (actor.getCapabilities().stream().mapToDouble(Double::doubleValue).sum());
             size = capability / 500;
         }
         double left = (pos[0] - (size / 2)) * currentCanvasRate;
@@ -312,9 +341,9 @@ public final class CanvasDrawer {
         drawTorusOval(gc, left, top, size * currentCanvasRate);
 
         // 供給Actorは色付きで描画
-        if (serviceId != ALL_SERVICES_ID) {
+        if (serviceId != getAllServicesId()) {
             if (actor.getConsumerActorIdList(serviceId).size() > 0) {
-                color = isFocus ? mainFocusColors.get(serviceId) : mainNoFocusColor.get(serviceId);
+                color = isFocus ? mainFocusColors.get(colorIndex(serviceId)) : mainNoFocusColor.get(colorIndex(serviceId));
                 gc.setStroke(color);
                 drawTorusOval(gc, left, top, size * currentCanvasRate);
             }
@@ -330,10 +359,10 @@ public final class CanvasDrawer {
      * サービス交換ネットワークを描画
      */
     private static void drawNetwork(GraphicsContext gc, List<Actor> actors, int serviceId) {
-        if (serviceId == ALL_SERVICES_ID) {
+        if (serviceId == getAllServicesId()) {
             // すべてのサービスのネットワークを描画
             actors.forEach(actor -> IntStream
-                    .range(0, SERVICE_COUNT)
+                    .range(0, config.getServiceCount())
                     .forEach(i -> drawArrows(gc, actor, actors, i, true)));
         } else {
             actors.forEach(actor -> drawArrows(gc, actor, actors, serviceId, false));
@@ -406,14 +435,15 @@ public final class CanvasDrawer {
 
         int[] dstActorPos = dstActor.getPos();
         double[] dstActorPosDouble = {dstActorPos[0], dstActorPos[1]};
-        double[] distVector = CalcUtil.calcDistVector(srcActorPos, dstActorPos);
+        int fieldSize = srcActor.getConfig().getFieldSize();
+        double[] distVector = CalcUtil.calcDistVector(srcActorPos, dstActorPos, fieldSize);
         double[] arrowDstPos = {srcActorPos[0] + distVector[0], srcActorPos[1] + distVector[1]};
 
         drawArrow(gc, srcActorPosDouble, arrowDstPos);
 
         // トーラス処理
         // 矢印が画面外の場合、逆からもう一本矢印を描画
-        if ((arrowDstPos[0] < 0 || FIELD_SIZE < arrowDstPos[0]) || (arrowDstPos[1] < 0 || FIELD_SIZE < arrowDstPos[1])) {
+        if ((arrowDstPos[0] < 0 || fieldSize < arrowDstPos[0]) || (arrowDstPos[1] < 0 || fieldSize < arrowDstPos[1])) {
             double[] arrowSrcPos = {dstActorPos[0] - distVector[0], dstActorPos[1] - distVector[1]};
             drawArrow(gc, arrowSrcPos, dstActorPosDouble);
         }
@@ -456,13 +486,20 @@ public final class CanvasDrawer {
         gc.strokeLine(x1, y1, x2, y2);
     }
 
+    /**
+     * サービスの色の番号(色の数よりサービスが多ければ繰り返す)
+     */
+    private static int colorIndex(int serviceId) {
+        return serviceId % mainFocusColors.size();
+    }
+
     /**
      * Capabilityによって表示する色を決定し返却する
      */
     private static Color selectArrowColor(Actor provider, Actor consumer, int serviceId, boolean isAllTab) {
         boolean isFocus = isFocus(provider.getId()) && isFocus(consumer.getId());
         if (isAllTab) {
-            return isFocus ? mainFocusColors.get(serviceId) : mainNoFocusColor.get(serviceId);
+            return isFocus ? mainFocusColors.get(colorIndex(serviceId)) : mainNoFocusColor.get(colorIndex(serviceId));
         }
         // 2つのCapabilityのうち、どちらの方が価値に大きく反映されているか
         // 1つ目であればMainColorを使用する
@@ -472,9 +509,9 @@ public final class CanvasDrawer {
 
         Color color;
         if (isFocus) {
-            color = (useMainColor) ? mainFocusColors.get(serviceId) : subFocusColors.get(serviceId);
+            color = (useMainColor) ? mainFocusColors.get(colorIndex(serviceId)) : subFocusColors.get(colorIndex(serviceId));
         } else {
-            color = (useMainColor) ? mainNoFocusColor.get(serviceId) : subNoFocusColors.get(serviceId);
+            color = (useMainColor) ? mainNoFocusColor.get(colorIndex(serviceId)) : subNoFocusColors.get(colorIndex(serviceId));
         }
         return color;
     }
@@ -487,7 +524,7 @@ public final class CanvasDrawer {
             canvas.setWidth(size);
             canvas.setHeight(size);
             currentCanvasSize = size;
-            currentCanvasRate = size / FIELD_SIZE;
+            currentCanvasRate = (double) size / config.getFieldSize();
         });
     }
 
@@ -13,6 +13,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.text.Text;
+import util.SimulationConfig;
 
 import java.util.Arrays;
 import java.util.List;
@@ -45,14 +46,18 @@ public final class JavaFXBuilder {
         return textInputDialog;
     }
 
-    public static Group buildRootGroup() {
+    /**
+     * 表示するログの設定(サービス数、フィールドの大きさ)とStep数に合わせて画面を生成
+     */
+    public static Group buildRootGroup(SimulationConfig config, int stepCount) {
         Group root = new Group();
+        CanvasDrawer.setConfig(config);
 
         // Actor表示View
         CanvasMousePressHandler handler = new CanvasMousePressHandler();
         List<Canvas> canvases = Stream
                 .generate(() -> buildDrawActorCanvas(0, 0, CANVAS_SIZE, CANVAS_SIZE, handler))
-                .limit(SERVICE_COUNT + 1)
+                .limit(config.getServiceCount() + 1)
                 .collect(Collectors.toList());
         // 描画クラスにcanvasを登録
         CanvasDrawer.setDrawActorsTabCanvases(canvases);
@@ -63,7 +68,7 @@ public final class JavaFXBuilder {
         ScrollPane scrollPrintTextPane = buildPrintTextScrollPane(CANVAS_SIZE, 0, CANVAS_SIZE, CANVAS_SIZE);
         root.getChildren().add(scrollPrintTextPane);
 
-        ScrollBar scrollBar = buildScrollbar();
+        ScrollBar scrollBar = buildScrollbar(stepCount);
         scrollBar.valueProperty().addListener(new ScrollBarChangeListener());
         root.getChildren().add(scrollBar);
 
@@ -73,7 +78,7 @@ public final class JavaFXBuilder {
 
         // 価格均衡までの価格推移線グラフ
         if (SHOW_PRICE_LINE_CHART) {
-            TabPane lineChartTabPane = buildLineChartTabPane(CANVAS_SIZE, CANVAS_SIZE);
+            TabPane lineChartTabPane = buildLineChartTabPane(CANVAS_SIZE, CANVAS_SIZE, config.getServiceCount());
             root.getChildren().add(lineChartTabPane);
         }
 
@@ -101,7 +106,7 @@ public final class JavaFXBuilder {
             Tab tab = buildDrawActorsTab(i, canvases.get(i));
             tabPane.getTabs().add(tab);
         }
-        tabPane.getSelectionModel().select(ALL_SERVICES_ID);
+        tabPane.getSelectionModel().select(CanvasDrawer.getAllServicesId());
         return tabPane;
     }
 
@@ -110,7 +115,7 @@ public final class JavaFXBuilder {
         tab.closableProperty().set(false);
         tab.setId(String.valueOf(tabId));
 
-        String tabText = (tabId == ALL_SERVICES_ID) ? "All Service" : "Service:" + tabId;
+        String tabText = (tabId == CanvasDrawer.getAllServicesId()) ? "All Service" : "Service:" + tabId;
         tab.setText(tabText);
 
         ScrollPane scrollPane = new ScrollPane();
@@ -129,28 +134,28 @@ public final class JavaFXBuilder {
         return canvas;
     }
 
-    private static TabPane buildLineChartTabPane(int x, int y) {
+    private static TabPane buildLineChartTabPane(int x, int y, int serviceCount) {
         List<LineChart<Number, Number>> lineCharts =
                 Stream.generate(() -> buildLineChart(0, 0, CANVAS_SIZE * 2, CANVAS_SIZE))
-                        .limit(SERVICE_COUNT + 1)
+                        .limit(serviceCount + 1)
                         .collect(Collectors.toList());
         CanvasDrawer.setPriceLineCharts(lineCharts);
 
         TabPane tabPane = new TabPane();
         tabPane.setLayoutX(x);
         tabPane.setLayoutY(y);
-        IntStream.range(0, SERVICE_COUNT + 1).forEach(i -> {
+        IntStream.range(0, serviceCount + 1).forEach(i -> {
             Tab tab = new Tab();
             tab.closableProperty().set(false);
             tab.setId(String.valueOf(i));
 
-            String tabText = (i == ALL_SERVICES_ID) ? "All Service" : "Service:" + i;
+            String tabText = (i == serviceCount) ? "All Service" : "Service:" + i;
             tab.setText(tabText);
 
             tab.setContent(lineCharts.get(i));
             tabPane.getTabs().add(tab);
         });
-        tabPane.getSelectionModel().select(ALL_SERVICES_ID);
+        tabPane.getSelectionModel().select(CanvasDrawer.getAllServicesId());
         return tabPane;
     }
 
@@ -201,13 +206,13 @@ public final class JavaFXBuilder {
         return scrollPrintTextPane;
     }
 
-    public static ScrollBar buildScrollbar() {
+    public static ScrollBar buildScrollbar(int stepCount) {
         ScrollBar scrollBar = new ScrollBar();
         scrollBar.setOrientation(Orientation.HORIZONTAL);
         scrollBar.setLayoutY(CANVAS_SIZE + 50);
         scrollBar.setPrefWidth(CANVAS_SIZE);
         scrollBar.setMin(0);
-        scrollBar.setMax(SIMULATION_COUNT - 1);
+        scrollBar.setMax(Math.max(stepCount - 1, 0));
         return scrollBar;
     }
 
@@ -3,12 +3,9 @@ package view;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import model.Actor;
-import util.ActorUtil;
+import model.SimulationContext;
 
 import java.util.List;
-import java.util.stream.IntStream;
-
-import static util.Const.SERVICE_COUNT;
 
 /**
  * Created by yutakase on 2016/12/18.
@@ -19,10 +16,12 @@ public class ScrollBarChangeListener implements ChangeListener<Number> {
 
     @Override
     public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
-        int val = (int) Math.round((Double) newValue);
+        if (actorLogList == null || actorLogList.isEmpty()) return;
+        // 読み込んだログのStep数を超えないようにする
+        int val = Math.min((int) Math.round((Double) newValue), actorLogList.size() - 1);
         List<Actor> actorLogs = actorLogList.get(val);
-        IntStream.range(0, SERVICE_COUNT + 1).forEach(i -> CanvasDrawer.drawActorsAndNetwork(actorLogs, i));
-        ActorUtil.setActors(actorLogs);
+        CanvasDrawer.drawAllServices(actorLogs);
+        SimulationContext.of(actorLogs);
     }
 
     public static void setActorLogList(List<List<Actor>> actorLogList) {
@@ -14,7 +14,6 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static util.Const.ACTOR_COUNT;
 import static util.Const.CANVAS_SIZE;
 import static util.Const.SERVICE_COUNT;
 
@@ -64,7 +63,7 @@ public class TextFieldOnActionHandler implements EventHandler<ActionEvent> {
                         break;
                     case "path":
                         if (inputStr.length == 2) {
-                            int pathCount = IntStream.range(0, ACTOR_COUNT).map(actorId -> {
+                            int pathCount = IntStream.range(0, actors.size()).map(actorId -> {
                                 List<List<Integer>> pathList = ActorUtil.exploreEcosystem(actors.get(actorId), Integer.parseInt(inputStr[1]));
                                 System.out.println(actorId);
                                 if (pathList.size() != 0) {
@@ -98,7 +97,7 @@ public class TextFieldOnActionHandler implements EventHandler<ActionEvent> {
         Actor provider = actors.get(id1);
         Actor consumer = actors.get(id2);
         double value = ActorUtil.calcValue(provider, consumer, serviceId);
-        double dist = CalcUtil.calcDist(provider.getPos(), consumer.getPos());
+        double dist = CalcUtil.calcDist(provider.getPos(), consumer.getPos(), provider.getConfig().getFieldSize());
         double price = provider.getPrice(serviceId);
         double profit = ActorUtil.calcProfit(provider, consumer, serviceId);
         String sb = "provider:" + id1 + ", " + "consumer: " + id2 + "\n" +